@@ -0,0 +1,75 @@
+// =====================================================================
+// Prueba de carga: hilos de plataforma vs hilos virtuales (k6)
+//
+// Mezcla de lectura/escritura con bloqueo en JDBC: menú, carrito
+// (agregar + ver), pedidos del usuario y tickets DGI del día.
+//
+// Uso (base de prueba con usuarios cliente1..clienteN / "secreta123"):
+//   1) mvn spring-boot:run                      (hilos de plataforma)
+//      k6 run -e BASE=http://localhost:8080 benchmarks/carga_hilos_virtuales.js
+//   2) mvn spring-boot:run -Philos-virtuales    (hilos virtuales)
+//      k6 run -e BASE=http://localhost:8080 benchmarks/carga_hilos_virtuales.js
+// Comparar http_reqs/s y http_req_duration p(99) de ambos resúmenes.
+// Con el perfil virtual, revisar además la salida de jdk.tracePinnedThreads.
+// =====================================================================
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE = __ENV.BASE || 'http://localhost:8080';
+const USUARIOS = Number(__ENV.USUARIOS || 500);
+const PRODUCTO_ID = Number(__ENV.PRODUCTO_ID || 1);
+const DGI_KEY = __ENV.DGI_KEY || 'DGI-SECRET-KEY-2025';
+
+export const options = {
+    scenarios: {
+        clientes: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '30s', target: 2000 },
+                { duration: '2m', target: 2000 },
+                { duration: '15s', target: 0 },
+            ],
+            gracefulRampDown: '10s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+};
+
+// Un token por usuario de prueba, obtenido antes de la carga
+export function setup() {
+    const sesiones = [];
+    for (let i = 1; i <= USUARIOS; i++) {
+        const r = http.post(`${BASE}/api/auth/login`,
+            JSON.stringify({ email: `cliente${i}@test.com`, password: 'secreta123' }),
+            { headers: { 'Content-Type': 'application/json' } });
+        if (r.status === 200) {
+            sesiones.push({ token: r.json('token'), id: r.json('id') });
+        }
+    }
+    if (sesiones.length === 0) throw new Error('No se pudo iniciar sesión con ningún usuario de prueba');
+    return { sesiones };
+}
+
+export default function (data) {
+    const s = data.sesiones[(__VU - 1) % data.sesiones.length];
+    const auth = { headers: { Authorization: `Bearer ${s.token}`, 'Content-Type': 'application/json' } };
+    const hoy = new Date().toISOString().slice(0, 10);
+
+    check(http.get(`${BASE}/api/productos`, auth), { 'menú 200/304': r => r.status === 200 || r.status === 304 });
+
+    check(http.post(`${BASE}/api/carrito/productos/${PRODUCTO_ID}`,
+        JSON.stringify({ usuarioId: s.id, cantidad: 1 }), auth), { 'agregar 200': r => r.status === 200 });
+
+    check(http.get(`${BASE}/api/carrito?usuarioId=${s.id}`, auth), { 'carrito 200': r => r.status === 200 });
+
+    check(http.get(`${BASE}/api/pedidos/mis-pedidos`, auth), { 'mis pedidos 200': r => r.status === 200 });
+
+    if (__ITER % 20 === 0) {
+        check(http.get(`${BASE}/api/external/dgi/resumen?fecha=${hoy}`, { headers: { 'X-API-Key': DGI_KEY } }),
+            { 'dgi 200': r => r.status === 200 });
+    }
+}
@@ -0,0 +1,85 @@
+-- =====================================================================
+-- Benchmark: filtro por día sobre pedidos.fecha_hora (MySQL 8.0.18+)
+--
+-- Compara DATE(fecha_hora) = :fecha contra el rango semiabierto
+-- [fecha 00:00, fecha+1 00:00), sin y con los índices de Pedido.
+--
+-- Uso (base de prueba, NO producción):
+--   mysql -u root -p pizzumburgum_bench < benchmarks/pedidos_fecha_indices.sql
+--
+-- Siembra ~3.000.000 de pedidos repartidos en 2 años y 50.000 usuarios.
+-- Ajustar @filas para otros volúmenes.
+-- =====================================================================
+
+SET @filas = 3000000;
+SET SESSION cte_max_recursion_depth = 10000000;
+
+DROP TABLE IF EXISTS bench_pedidos;
+CREATE TABLE bench_pedidos (
+    id               BIGINT AUTO_INCREMENT PRIMARY KEY,
+    precio_total     DECIMAL(10, 2) NOT NULL,
+    estado           VARCHAR(20)    NOT NULL,
+    fecha_hora       DATETIME(6)    NOT NULL,
+    observaciones    VARCHAR(1000),
+    direccion_entrega VARCHAR(255),
+    usuario_id       BIGINT         NOT NULL
+) ENGINE = InnoDB;
+
+INSERT INTO bench_pedidos (precio_total, estado, fecha_hora, usuario_id)
+WITH RECURSIVE seq (n) AS (
+    SELECT 1
+    UNION ALL
+    SELECT n + 1 FROM seq WHERE n < @filas
+)
+SELECT ROUND(100 + RAND() * 900, 2),
+       ELT(1 + FLOOR(RAND() * 4), 'PENDIENTE', 'PREPARACION', 'EN_CAMINO', 'ENTREGADO'),
+       TIMESTAMP('2024-01-01') + INTERVAL FLOOR(RAND() * 730 * 86400) SECOND,
+       1 + FLOOR(RAND() * 50000)
+FROM seq;
+
+ANALYZE TABLE bench_pedidos;
+
+-- ---------------------------------------------------------------------
+-- 1) Sin índices: ambas formas recorren la tabla completa
+-- ---------------------------------------------------------------------
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM bench_pedidos WHERE DATE(fecha_hora) = '2025-06-15';
+
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM bench_pedidos
+WHERE fecha_hora >= '2025-06-15 00:00:00' AND fecha_hora < '2025-06-16 00:00:00';
+
+-- ---------------------------------------------------------------------
+-- 2) Con los índices declarados en Pedido
+-- ---------------------------------------------------------------------
+CREATE INDEX idx_pedidos_fecha_hora         ON bench_pedidos (fecha_hora);
+CREATE INDEX idx_pedidos_estado_fecha_hora  ON bench_pedidos (estado, fecha_hora);
+CREATE INDEX idx_pedidos_usuario_fecha_hora ON bench_pedidos (usuario_id, fecha_hora);
+ANALYZE TABLE bench_pedidos;
+
+-- DATE(...) sigue siendo full scan (o full index scan): la función oculta la columna
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM bench_pedidos WHERE DATE(fecha_hora) = '2025-06-15';
+
+-- Rango semiabierto: range scan sobre idx_pedidos_fecha_hora (~4.000 filas)
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM bench_pedidos
+WHERE fecha_hora >= '2025-06-15 00:00:00' AND fecha_hora < '2025-06-16 00:00:00';
+
+-- Listado del día ordenado (findIdsByFechaRange)
+EXPLAIN ANALYZE
+SELECT id FROM bench_pedidos
+WHERE fecha_hora >= '2025-06-15 00:00:00' AND fecha_hora < '2025-06-16 00:00:00'
+ORDER BY fecha_hora DESC, id DESC;
+
+-- Por estado (findIdsByEstado): usa idx_pedidos_estado_fecha_hora sin filesort
+EXPLAIN ANALYZE
+SELECT id FROM bench_pedidos WHERE estado = 'PENDIENTE'
+ORDER BY fecha_hora DESC, id DESC LIMIT 50;
+
+-- Por usuario (findIdsByUsuarioId / mis-pedidos): usa idx_pedidos_usuario_fecha_hora
+EXPLAIN ANALYZE
+SELECT id FROM bench_pedidos WHERE usuario_id = 4242
+ORDER BY fecha_hora DESC, id DESC;
+
+DROP TABLE bench_pedidos;
@@ -23,6 +23,33 @@ export const ListarPedidos = () => {
     buscarPedidos();
   }, []);
 
+  // Filtro por estado: la lista se mantiene con el stream de cocina en lugar de volver a consultarla
+  useEffect(() => {
+    if (filtroEstado === 'TODOS') return undefined;
+
+    return pedidoService.suscribirCocina([filtroEstado], {
+      onPedido: (evento) => {
+        if (evento.tipo === 'CREADO' || evento.estado === filtroEstado) {
+          // Pedido nuevo en la columna: el evento es compacto, se trae el detalle completo
+          pedidoService.obtenerPorId(evento.pedidoId)
+            .then((pedido) => setPedidos((actuales) => [pedido, ...actuales.filter((p) => p.id !== pedido.id)]))
+            .catch((err) => console.error(err));
+        } else {
+          setPedidos((actuales) => actuales.filter((p) => p.id !== evento.pedidoId));
+        }
+      },
+      onResync: () => {
+        pedidoService.listarPorEstado(filtroEstado)
+          .then(setPedidos)
+          .catch(() => setError('Error al cargar pedidos'));
+      }
+    });
+  }, [filtroEstado]);
+
+  useEffect(() => {
+    if (filtroEstado !== 'TODOS') setTotalPedidos(pedidos.length);
+  }, [pedidos, filtroEstado]);
+
   const buscarPedidos = async () => {
     setLoading(true);
     setError('');
@@ -1,4 +1,51 @@
 import api from './api';
+import { API_URL } from '../utils/constants';
+
+// EventSource no admite el header Authorization: cada conexión se abre con un ticket corto
+// (?ticket=) y, si el stream se cierra, se pide otro y se retoma desde el último id visto.
+const abrirStream = (ruta, parametros, { onPedido, onResync }) => {
+  let fuente = null;
+  let cerrado = false;
+  let ultimoId = null;
+  let reintento = null;
+
+  const conectar = async () => {
+    if (cerrado) return;
+    try {
+      const { data } = await api.post('/pedidos/eventos/ticket');
+      const query = new URLSearchParams(parametros);
+      query.set('ticket', data.ticket);
+      if (ultimoId) query.set('ultimoId', ultimoId);
+      if (cerrado) return;
+
+      fuente = new EventSource(`${API_URL}${ruta}?${query}`);
+      fuente.addEventListener('pedido', (e) => {
+        ultimoId = e.lastEventId;
+        onPedido(JSON.parse(e.data));
+      });
+      fuente.addEventListener('resync', (e) => {
+        ultimoId = e.lastEventId;
+        onResync();
+      });
+      fuente.onerror = () => {
+        // CONNECTING: el navegador reintenta solo; CLOSED: el ticket ya no sirve
+        if (fuente.readyState === EventSource.CLOSED) {
+          reintento = setTimeout(conectar, 3000);
+        }
+      };
+    } catch (err) {
+      reintento = setTimeout(conectar, 3000);
+    }
+  };
+
+  conectar();
+  return () => {
+    cerrado = true;
+    clearTimeout(reintento);
+    if (fuente) fuente.close();
+  };
+};
+
 
 export const pedidoService = {
   // ============= ENDPOINTS PARA ADMIN =============
@@ -25,6 +72,11 @@ export const pedidoService = {
     return response.data;
   },
 
+  // Cocina en vivo: eventos de los pedidos que entran o salen de esos estados. Devuelve la función para cerrar
+  suscribirCocina(estados, handlers) {
+    return abrirStream('/pedidos/admin/eventos', estados?.length ? { estados: estados.join(',') } : {}, handlers);
+  },
+
   async cambiarEstado(id, nuevoEstado) {
     const response = await api.patch(`/pedidos/admin/${id}/estado`, {
       estado: nuevoEstado
@@ -39,6 +91,10 @@ export const pedidoService = {
     return response.data;
   },
 
+  suscribirMisPedidos(handlers) {
+    return abrirStream('/pedidos/mis-pedidos/eventos', {}, handlers);
+  },
+
   async obtenerPorId(id) {
     const response = await api.get(`/pedidos/${id}`);
     return response.data;
@@ -3,6 +3,7 @@ package com.example.pizzumburgum.config;
 import com.example.pizzumburgum.security.ApiKeyAuthFilter;
 import com.example.pizzumburgum.security.CustomUserDetailsService;
 import com.example.pizzumburgum.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -42,10 +43,14 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        // Streams (SSE / StreamingResponseBody): el request original ya fue autorizado
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers("/api/auth/registro", "/api/auth/login").permitAll()
                         .requestMatchers("/api/external/dgi/**", "/api/external/bps/**").permitAll()
                         .requestMatchers("/api/auth/registro-admin").hasRole("ADMIN")
                         .requestMatchers("/api/pedidos/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/api/tendencias/admin/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/tendencias").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/productos", "/api/productos/{id}").hasAnyRole("CLIENTE", "ADMIN")
                         .requestMatchers("/api/productos/**").hasRole("ADMIN")
                         .requestMatchers("/api/creaciones/**").hasAnyRole("CLIENTE", "ADMIN")
@@ -1,8 +1,8 @@
 package com.example.pizzumburgum.controller;
 
+import com.example.pizzumburgum.dto.request.CarritoLoteDTO;
 import com.example.pizzumburgum.dto.request.CarritoOperacionDTO;
 import com.example.pizzumburgum.dto.response.CarritoDTO;
-import com.example.pizzumburgum.entities.Carrito;
 import com.example.pizzumburgum.service.CarritoService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
@@ -34,9 +34,8 @@ public class CarritoController {
             @RequestBody @Valid CarritoOperacionDTO dto) {
 
         try {
-            Carrito carrito = carritoService.agregarProductoSuelto(
+            CarritoDTO carritoDTO = carritoService.agregarProductoSuelto(
                     dto.getUsuarioId(), productoId, dto.getCantidadRequerida());
-            CarritoDTO carritoDTO = carritoService.convertirADTO(carrito);
             return ResponseEntity.ok(carritoDTO);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
@@ -55,9 +54,8 @@ public class CarritoController {
             @RequestBody @Valid CarritoOperacionDTO dto) {
 
         try {
-            Carrito carrito = carritoService.agregarCreacion(
+            CarritoDTO carritoDTO = carritoService.agregarCreacion(
                     dto.getUsuarioId(), creacionId, dto.getCantidadRequerida());
-            CarritoDTO carritoDTO = carritoService.convertirADTO(carrito);
             return ResponseEntity.ok(carritoDTO);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
@@ -75,9 +73,23 @@ public class CarritoController {
             @PathVariable Long carritoItemId,
             @RequestBody @Valid CarritoOperacionDTO dto) {
         try {
-            Carrito carrito = carritoService.actualizarCantidad(
-                    dto.getUsuarioId(), carritoItemId, dto.getNuevaCantidadRequerida());
-            return ResponseEntity.ok(carritoService.convertirADTO(carrito));
+            return ResponseEntity.ok(carritoService.actualizarCantidad(
+                    dto.getUsuarioId(), carritoItemId, dto.getNuevaCantidadRequerida()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * ================== Lote de operaciones ==================
+     */
+
+    // Varias altas/cambios/bajas en un solo request; se aplican todas o ninguna
+    @PostMapping("/lote")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
+    public ResponseEntity<?> aplicarLote(@RequestBody @Valid CarritoLoteDTO dto) {
+        try {
+            return ResponseEntity.ok(carritoService.aplicarLote(dto.getUsuarioId(), dto.getOperaciones()));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
@@ -86,8 +98,7 @@ public class CarritoController {
     @GetMapping
     public ResponseEntity<CarritoDTO> obtenerCarrito(@RequestParam Long usuarioId) {
         try {
-            Carrito carrito = carritoService.obtenerOCrearCarrito(usuarioId);
-            CarritoDTO dto = carritoService.convertirADTO(carrito);
+            CarritoDTO dto = carritoService.obtenerCarritoConDetalles(usuarioId);
             return ResponseEntity.ok(dto);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
@@ -100,8 +111,7 @@ public class CarritoController {
             @PathVariable Long carritoItemId,
             @RequestParam Long usuarioId) {
         try {
-            Carrito carrito = carritoService.eliminarItem(usuarioId, carritoItemId);
-            return ResponseEntity.ok(carritoService.convertirADTO(carrito));
+            return ResponseEntity.ok(carritoService.eliminarItem(usuarioId, carritoItemId));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
@@ -2,9 +2,12 @@ package com.example.pizzumburgum.controller;
 
 import com.example.pizzumburgum.dto.request.CreacionDTO;
 import com.example.pizzumburgum.dto.request.CreacionRequestDTO;
+import com.example.pizzumburgum.dto.response.PaginaCreacionesDTO;
 import com.example.pizzumburgum.entities.Creacion;
+import com.example.pizzumburgum.enums.CategoriaCreacion;
 import com.example.pizzumburgum.security.CustomUserDetails;
 import com.example.pizzumburgum.service.CreacionService;
+import com.example.pizzumburgum.service.ReglasCreacionService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -27,9 +30,12 @@ import java.util.*;
 public class CreacionController {
 
     private final CreacionService creacionService;
+    private final ReglasCreacionService reglasCreacionService;
 
-    public CreacionController(CreacionService creacionService) {
+    public CreacionController(CreacionService creacionService,
+                              ReglasCreacionService reglasCreacionService) {
         this.creacionService = creacionService;
+        this.reglasCreacionService = reglasCreacionService;
     }
 
     /**
@@ -121,6 +127,42 @@ public class CreacionController {
         return ResponseEntity.ok(creaciones);
     }
 
+    // Paginación por cursor: /mis-creaciones/pagina?limite=50&cursor=<siguienteCursor de la página anterior>
+    @GetMapping("/mis-creaciones/pagina")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
+    public ResponseEntity<PaginaCreacionesDTO> listarMisCreacionesPaginadas(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+
+        return ResponseEntity.ok(
+                creacionService.listarCreacionesDeUsuarioPaginadas(userDetails.getId(), cursor, limite));
+    }
+
+    // ============= REGLAS DE ARMADO (ADMIN) =============
+
+    @GetMapping("/admin/reglas")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<CategoriaCreacion, String>> listarReglas() {
+        return ResponseEntity.ok(reglasCreacionService.listar());
+    }
+
+    // Body: {"regla": "TIPO_MASA:1,TAMANIO_PIZZA:1,TOPPING_PIZZA:0..8,BEBIDA:0..1"}; rige desde el próximo pedido.
+    // Ajuste temporal de un solo nodo: cambia la memoria de la instancia que atiende el request,
+    // las demás siguen con su regla y se pierde al reiniciar. El cambio permanente va al properties.
+    @PutMapping("/admin/reglas/{tipo}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, String>> actualizarRegla(
+            @PathVariable CategoriaCreacion tipo,
+            @RequestBody Map<String, String> body) {
+        String vigente = reglasCreacionService.actualizar(tipo, body.get("regla"));
+        return ResponseEntity.ok(Map.of(
+                "tipo", tipo.name(),
+                "regla", vigente,
+                "alcance", "solo esta instancia, hasta reiniciar; permanente en creaciones.reglas." + tipo.name()));
+    }
+
     @PatchMapping("/{id}/favorita")
     @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
     public ResponseEntity<CreacionDTO> actualizarFavorita(
@@ -1,7 +1,11 @@
 package com.example.pizzumburgum.controller;
 
+import com.example.pizzumburgum.dto.dgi.DgiResumenDTO;
+import com.example.pizzumburgum.dto.dgi.DgiTicketDTO;
 import com.example.pizzumburgum.dto.dgi.DgiTicketsResponse;
 import com.example.pizzumburgum.service.DgiService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,9 +16,13 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 
 @RestController
@@ -26,6 +34,7 @@ import java.time.LocalDate;
 public class DgiController {
 
     private final DgiService dgiService;
+    private final ObjectMapper objectMapper;
 
     @Operation(
             summary = "Obtener tickets de venta por fecha",
@@ -74,4 +83,83 @@ public class DgiController {
         DgiTicketsResponse resp = dgiService.obtenerTicketsPorFecha(fecha);
         return ResponseEntity.ok(resp);
     }
+
+    @Operation(
+            summary = "Obtener resumen de ventas por fecha",
+            description = """
+                    Retorna solo la cantidad de tickets y el total monetario del día,
+                    leídos del ledger diario de ventas (sin el detalle de cada ticket).
+                    
+                    **Formato de fecha:** YYYY-MM-DD (ISO 8601)
+                    """
+    )
+    @GetMapping("/resumen")
+    public ResponseEntity<DgiResumenDTO> getResumenByFecha(
+            @Parameter(
+                    description = "Fecha de consulta en formato YYYY-MM-DD",
+                    example = "2025-11-25",
+                    required = true
+            )
+            @RequestParam("fecha")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate fecha
+    ) {
+        return ResponseEntity.ok(dgiService.obtenerResumenPorFecha(fecha));
+    }
+
+    @Operation(
+            summary = "Obtener tickets de venta por fecha (streaming)",
+            description = """
+                    Igual que `/tickets` pero el JSON se escribe a medida que se leen los pedidos,
+                    en lotes acotados, para días de mucho volumen.
+                    
+                    **Diferencias con el modo normal:**
+                    - `tickets` aparece primero y viene ordenado por id
+                    - `cantidad` y `totalDelDia` se escriben al final, calculados sobre la marcha
+                    """
+    )
+    @GetMapping(value = "/tickets", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> getTicketsByFechaStream(
+            @Parameter(
+                    description = "Fecha de consulta en formato YYYY-MM-DD",
+                    example = "2025-11-25",
+                    required = true
+            )
+            @RequestParam("fecha")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate fecha,
+            @Parameter(description = "Cantidad de pedidos leídos por lote")
+            @RequestParam(value = "lote", defaultValue = "500")
+            int lote
+    ) {
+        StreamingResponseBody cuerpo = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+                gen.writeStartObject();
+                gen.writeObjectField("fecha", fecha);
+                gen.writeArrayFieldStart("tickets");
+
+                DgiResumenDTO resumen = dgiService.recorrerTicketsPorFecha(fecha, lote, tickets -> {
+                    try {
+                        for (DgiTicketDTO t : tickets) {
+                            gen.writeObject(t);
+                        }
+                        gen.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+                gen.writeEndArray();
+                gen.writeNumberField("cantidad", resumen.cantidad());
+                gen.writeNumberField("totalDelDia", resumen.totalDelDia());
+                gen.writeEndObject();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cuerpo);
+    }
 }
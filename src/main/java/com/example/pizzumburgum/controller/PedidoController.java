@@ -2,23 +2,41 @@ package com.example.pizzumburgum.controller;
 
 import com.example.pizzumburgum.dto.request.CrearPedidoDTO;
 import com.example.pizzumburgum.dto.request.PedidoDTO;
+import com.example.pizzumburgum.dto.response.CheckoutEstadoDTO;
+import com.example.pizzumburgum.dto.response.PaginaPedidosDTO;
+import com.example.pizzumburgum.dto.response.VentaDiariaDTO;
 import com.example.pizzumburgum.entities.Pedido;
+import com.example.pizzumburgum.enums.EstadoCheckout;
 import com.example.pizzumburgum.enums.EstadoPedido;
 import com.example.pizzumburgum.security.CustomUserDetails;
+import com.example.pizzumburgum.security.JwtService;
+import com.example.pizzumburgum.service.CheckoutAsincronoService;
+import com.example.pizzumburgum.service.EventosPedidoService;
 import com.example.pizzumburgum.service.PedidoService;
+import com.example.pizzumburgum.service.VentasDiariasService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/pedidos")
@@ -27,6 +45,11 @@ import java.util.Map;
 public class PedidoController {
 
     private final PedidoService pedidoService;
+    private final CheckoutAsincronoService checkoutAsincronoService;
+    private final EventosPedidoService eventosPedidoService;
+    private final VentasDiariasService ventasDiariasService;
+    private final ObjectMapper objectMapper;
+    private final JwtService jwtService;
 
     // ============= ENDPOINTS PARA ADMIN =============
 
@@ -37,6 +60,39 @@ public class PedidoController {
         return ResponseEntity.ok(pedidos);
     }
 
+    // Paginación por cursor: /admin/todos/pagina?limite=50&cursor=<siguienteCursor de la página anterior>
+    @GetMapping("/admin/todos/pagina")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PaginaPedidosDTO> listarPedidosPaginados(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite) {
+
+        return ResponseEntity.ok(pedidoService.listarPedidosPaginados(cursor, limite));
+    }
+
+    // Exportación completa en NDJSON (un PedidoDTO por línea), escrita a medida que se lee
+    @GetMapping(value = "/admin/todos/export", produces = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportarPedidos(
+            @RequestParam(defaultValue = "200") int lote) {
+
+        StreamingResponseBody cuerpo = out -> pedidoService.recorrerTodosLosPedidos(lote, pedidos -> {
+            try {
+                for (PedidoDTO dto : pedidos) {
+                    out.write(objectMapper.writeValueAsBytes(dto));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(cuerpo);
+    }
+
     @GetMapping("/admin/fecha/{fecha}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> listarPedidosPorFecha(
@@ -44,14 +100,40 @@ public class PedidoController {
 
         List<PedidoDTO> pedidos = pedidoService.listarPedidosPorFecha(fecha);
         Long cantidad = pedidoService.contarPedidosPorFecha(fecha);
+        // Solo los cobrados, según el ledger diario
+        long cantidadCobrados = ventasDiariasService.resumenDelDia(fecha).getCantidadPedidos();
 
         return ResponseEntity.ok(Map.of(
                 "fecha", fecha,
                 "cantidad", cantidad,
+                "cantidadCobrados", cantidadCobrados,
                 "pedidos", pedidos
         ));
     }
 
+    @GetMapping("/admin/ventas-diarias/{fecha}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<VentaDiariaDTO> obtenerVentasDelDia(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+
+        return ResponseEntity.ok(ventasDiariasService.obtenerDetalle(fecha));
+    }
+
+    // Reconstruye el ledger diario desde pedidos para el rango [desde, hasta]
+    @PostMapping("/admin/ventas-diarias/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reconstruirVentasDiarias(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+
+        int dias = ventasDiariasService.reconstruir(desde, hasta);
+        return ResponseEntity.ok(Map.of(
+                "desde", desde,
+                "hasta", hasta,
+                "diasReconstruidos", dias
+        ));
+    }
+
     @GetMapping("/admin/rango")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<PedidoDTO>> listarPedidosPorRango(
@@ -69,6 +151,17 @@ public class PedidoController {
         return ResponseEntity.ok(pedidos);
     }
 
+    // Pantallas de cocina: eventos SSE de pedidos creados y cambios de estado, en lugar de polling.
+    // ?estados=PENDIENTE,PREPARACION para recibir solo los pedidos que entran o salen de esas columnas
+    @GetMapping(value = "/admin/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public SseEmitter suscribirEventos(
+            @RequestParam(required = false) Set<EstadoPedido> estados,
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId,
+            @RequestParam(value = "ultimoId", required = false) String ultimoIdQuery) {
+        return eventosPedidoService.suscribir(estados, parsearUltimoEventoId(ultimoEventoId != null ? ultimoEventoId : ultimoIdQuery));
+    }
+
     @PatchMapping("/admin/{id}/estado")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<PedidoDTO> cambiarEstadoPedido(
@@ -76,7 +169,9 @@ public class PedidoController {
             @RequestBody Map<String, String> body) {
 
         EstadoPedido nuevoEstado = EstadoPedido.valueOf(body.get("estado").toUpperCase());
-        PedidoDTO pedido = pedidoService.cambiarEstadoPedido(id, nuevoEstado);
+        // "version" opcional: la que vio el admin; si el pedido cambió desde entonces es 409
+        Long version = body.get("version") != null ? Long.valueOf(body.get("version")) : null;
+        PedidoDTO pedido = pedidoService.cambiarEstadoPedido(id, nuevoEstado, version);
         return ResponseEntity.ok(pedido);
     }
 
@@ -93,6 +188,34 @@ public class PedidoController {
         return ResponseEntity.ok(pedidos);
     }
 
+    // Seguimiento en vivo de los pedidos propios (SSE). Al reconectar, el navegador manda
+    // Last-Event-ID y solo se reenvían los cambios que no vio, sin volver a pedir la lista
+    @GetMapping(value = "/mis-pedidos/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
+    public SseEmitter seguirMisPedidos(
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId,
+            @RequestParam(value = "ultimoId", required = false) String ultimoIdQuery) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+
+        return eventosPedidoService.suscribirUsuario(userDetails.getId(),
+                parsearUltimoEventoId(ultimoEventoId != null ? ultimoEventoId : ultimoIdQuery));
+    }
+
+    // Ticket corto para abrir los streams /eventos con EventSource (?ticket=...), que no admite
+    // el header Authorization. Si el stream se cae después de vencido, el cliente pide otro y
+    // reabre con ?ultimoId= (el navegador no manda Last-Event-ID en una conexión nueva)
+    @PostMapping("/eventos/ticket")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
+    public ResponseEntity<Map<String, Object>> ticketEventos() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+
+        return ResponseEntity.ok(Map.of(
+                "ticket", jwtService.generarTicketEventos(userDetails),
+                "expiraEnMs", jwtService.getExpiracionTicketEventos()));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
     public ResponseEntity<PedidoDTO> obtenerPedido(@PathVariable Long id) {
@@ -119,4 +242,59 @@ public class PedidoController {
         return ResponseEntity.status(HttpStatus.CREATED).body(pedido);
     }
 
+    // Checkout asíncrono: 202 + handle para consultar; reintentos con la misma clave no duplican
+    @PostMapping("/crear-async")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
+    public ResponseEntity<?> crearPedidoAsync(
+            @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia,
+            @RequestBody @Valid CrearPedidoDTO dto) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+
+        try {
+            CheckoutAsincronoService.Encolado encolado = checkoutAsincronoService.encolar(
+                    userDetails.getId(),
+                    claveIdempotencia,
+                    dto.getTarjetaId(),
+                    dto.getObservaciones(),
+                    dto.getDireccionEntrega()
+            );
+            CheckoutEstadoDTO estado = encolado.estado();
+            HttpStatus status = estado.getEstado() == EstadoCheckout.COMPLETADO ? HttpStatus.OK : HttpStatus.ACCEPTED;
+            return ResponseEntity.status(status)
+                    .location(URI.create("/api/pedidos/checkout/" + estado.getId()))
+                    .body(estado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of("error", "Demasiados pedidos en proceso, reintentá en unos segundos"));
+        }
+    }
+
+    @GetMapping("/checkout/{id}")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'ADMIN')")
+    public ResponseEntity<CheckoutEstadoDTO> consultarCheckout(@PathVariable String id) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+
+        return checkoutAsincronoService.consultar(id, userDetails.getId(), "ADMIN".equals(userDetails.getRol()))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Id ilegible: se trata como perdido y el cliente recibe un resync
+    private static Long parsearUltimoEventoId(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(valor.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
 }
@@ -3,13 +3,14 @@ package com.example.pizzumburgum.controller;
 import com.example.pizzumburgum.dto.request.ProductoPatchDTO; // movelo si cambias el paquete
 import com.example.pizzumburgum.entities.Producto;
 import com.example.pizzumburgum.enums.CategoriaProducto;
-import com.example.pizzumburgum.repository.ProductoRepositorio;
+import com.example.pizzumburgum.service.CatalogoPayloadService;
 import com.example.pizzumburgum.service.ProductoService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.BindException;
@@ -27,6 +28,7 @@ import java.util.*;
  * - Crea 1: POST /api/productos
  * - Crea varios: POST /api/productos/bulk
  * - GET por id: GET /api/productos/{id}
+ * - Listado: GET /api/productos (JSON pre-serializado, gzip opcional, ETag / If-None-Match -> 304)
  * - PATCH parcial (nombre, imagenUrl, categoria): PATCH /api/productos/{id}
  * - PUT precio: PUT /api/productos/{id}/precio
  * - PUT descripcion: PUT /api/productos/{id}/descripcion
@@ -37,12 +39,12 @@ import java.util.*;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final CatalogoPayloadService catalogoPayloadService;
 
-    @Autowired
-    private ProductoRepositorio productoRepositorio;
-
-    public ProductoController(ProductoService productoService) {
+    public ProductoController(ProductoService productoService,
+                              CatalogoPayloadService catalogoPayloadService) {
         this.productoService = productoService;
+        this.catalogoPayloadService = catalogoPayloadService;
     }
 
     /* ============== Crear uno ============== */
@@ -84,10 +86,34 @@ public class ProductoController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /* ============== Listado (pre-serializado + ETag) ============== */
     @GetMapping
-    public ResponseEntity<List<Producto>> listarTodos() {
-        List<Producto> productos = productoRepositorio.findAll();
-        return ResponseEntity.ok(productos);
+    public ResponseEntity<byte[]> listarTodos(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        CatalogoPayloadService.Payload payload = catalogoPayloadService.actual();
+        boolean gzip = CatalogoPayloadService.aceptaGzip(acceptEncoding);
+        String etag = gzip ? payload.etagGzip() : payload.etag();
+
+        if (CatalogoPayloadService.coincideEtag(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build(); // 304 sin cuerpo
+        }
+
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        if (gzip) {
+            return respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzip());
+        }
+        return respuesta.body(payload.json());
     }
 
     /* ============== PATCH parcial (nombre/imagenUrl/categoria) ============== */
@@ -0,0 +1,50 @@
+package com.example.pizzumburgum.controller;
+
+import com.example.pizzumburgum.dto.response.TendenciaDTO;
+import com.example.pizzumburgum.service.TendenciasService;
+import com.example.pizzumburgum.service.TendenciasService.Periodo;
+import com.example.pizzumburgum.service.TendenciasService.Tipo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/tendencias")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class TendenciaController {
+
+    private static final int LIMITE_PUBLICO_MAXIMO = 20;
+
+    private final TendenciasService tendenciasService;
+
+    // Público: lo más pedido, solo posición y nombre (las creaciones con una etiqueta genérica,
+    // sin el nombre que les puso el cliente). /api/tendencias?periodo=HOY&limite=10
+    @GetMapping
+    public ResponseEntity<Map<String, List<TendenciaDTO>>> tendencias(
+            @RequestParam(defaultValue = "HOY") Periodo periodo,
+            @RequestParam(defaultValue = "10") int limite) {
+
+        int tope = Math.min(limite, LIMITE_PUBLICO_MAXIMO);
+        Map<String, List<TendenciaDTO>> body = new LinkedHashMap<>();
+        body.put("productos", tendenciasService.ranking(Tipo.PRODUCTO, periodo, tope, false));
+        body.put("creaciones", tendenciasService.ranking(Tipo.CREACION, periodo, tope, false));
+        return ResponseEntity.ok(body);
+    }
+
+    // Admin: con unidades aproximadas y su cota de error. /api/tendencias/admin?tipo=PRODUCTO&periodo=HORA
+    @GetMapping("/admin")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<TendenciaDTO>> ranking(
+            @RequestParam(defaultValue = "PRODUCTO") Tipo tipo,
+            @RequestParam(defaultValue = "HOY") Periodo periodo,
+            @RequestParam(defaultValue = "50") int limite) {
+
+        return ResponseEntity.ok(tendenciasService.ranking(tipo, periodo, limite, true));
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.pizzumburgum.dto.dgi;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record DgiResumenDTO(
+        LocalDate fecha,
+        Integer cantidad,
+        BigDecimal totalDelDia
+) {}
@@ -0,0 +1,98 @@
+package com.example.pizzumburgum.dto.request;
+
+import com.example.pizzumburgum.enums.TipoOperacionCarrito;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Varias operaciones sobre el carrito en un solo request.
+ * Se aplican en orden y todas o ninguna.
+ */
+public class CarritoLoteDTO {
+
+    @NotNull(message = "usuarioId es obligatorio")
+    private Long usuarioId;
+
+    @NotEmpty(message = "Debe enviar al menos una operación")
+    @Size(max = 200, message = "Máximo 200 operaciones por lote")
+    private List<@Valid Operacion> operaciones;
+
+    /* ===== Getters & Setters ===== */
+
+    public Long getUsuarioId() { return usuarioId; }
+    public void setUsuarioId(Long usuarioId) { this.usuarioId = usuarioId; }
+
+    public List<Operacion> getOperaciones() { return operaciones; }
+    public void setOperaciones(List<Operacion> operaciones) { this.operaciones = operaciones; }
+
+    /**
+     * Una operación del lote, con los mismos campos que {@link CarritoOperacionDTO}
+     * más el tipo y el id del ítem al que aplica.
+     */
+    public static class Operacion {
+
+        @NotNull(message = "El tipo de operación es obligatorio")
+        private TipoOperacionCarrito tipo;
+
+        // AGREGAR_PRODUCTO
+        private Long productoId;
+
+        // AGREGAR_CREACION
+        private Long creacionId;
+
+        // ACTUALIZAR_CANTIDAD / ELIMINAR_ITEM
+        private Long carritoItemId;
+
+        // Usado para agregar (producto/creación)
+        @Min(value = 1, message = "La cantidad debe ser >= 1")
+        private Integer cantidad;
+
+        // Usado para actualizar items existentes
+        @Min(value = 1, message = "La nueva cantidad debe ser >= 1")
+        private Integer nuevaCantidad;
+
+        /* ===== Getters & Setters ===== */
+
+        public TipoOperacionCarrito getTipo() { return tipo; }
+        public void setTipo(TipoOperacionCarrito tipo) { this.tipo = tipo; }
+
+        public Long getProductoId() { return productoId; }
+        public void setProductoId(Long productoId) { this.productoId = productoId; }
+
+        public Long getCreacionId() { return creacionId; }
+        public void setCreacionId(Long creacionId) { this.creacionId = creacionId; }
+
+        public Long getCarritoItemId() { return carritoItemId; }
+        public void setCarritoItemId(Long carritoItemId) { this.carritoItemId = carritoItemId; }
+
+        public Integer getCantidad() { return cantidad; }
+        public void setCantidad(Integer cantidad) { this.cantidad = cantidad; }
+
+        public Integer getNuevaCantidad() { return nuevaCantidad; }
+        public void setNuevaCantidad(Integer nuevaCantidad) { this.nuevaCantidad = nuevaCantidad; }
+
+        /* Helpers de conveniencia para evitar nulls en el service */
+        public int getCantidadRequerida() {
+            if (cantidad == null || cantidad < 1)
+                throw new IllegalArgumentException("La cantidad debe ser >= 1");
+            return cantidad;
+        }
+
+        public int getNuevaCantidadRequerida() {
+            if (nuevaCantidad == null || nuevaCantidad < 1)
+                throw new IllegalArgumentException("La nueva cantidad debe ser >= 1");
+            return nuevaCantidad;
+        }
+
+        public Long getIdRequerido(Long id, String campo) {
+            if (id == null)
+                throw new IllegalArgumentException(campo + " es obligatorio para " + tipo);
+            return id;
+        }
+    }
+}
@@ -17,5 +17,6 @@ public class PedidoDTO {
     private String nombreCliente;
     private String emailCliente;
     private List<PedidoItemDTO> items;
+    private Long version;
 
 }
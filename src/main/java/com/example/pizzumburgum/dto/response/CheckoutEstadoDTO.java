@@ -0,0 +1,22 @@
+package com.example.pizzumburgum.dto.response;
+
+import com.example.pizzumburgum.enums.EstadoCheckout;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutEstadoDTO {
+
+    // Handle para consultar el estado: GET /api/pedidos/checkout/{id}
+    private String id;
+    private EstadoCheckout estado;
+
+    // Cuando estado = COMPLETADO o PAGO_EN_VERIFICACION (o FALLIDO por pago rechazado: el pedido queda CANCELADO)
+    private Long pedidoId;
+
+    // Solo cuando estado = FALLIDO
+    private String error;
+}
@@ -0,0 +1,20 @@
+package com.example.pizzumburgum.dto.response;
+
+import com.example.pizzumburgum.enums.EstadoPedido;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Evento compacto de un pedido (SSE) para las pantallas de cocina y el seguimiento del cliente.
+ * tipo: CREADO | ESTADO. estadoAnterior solo en cambios de estado.
+ */
+public record EventoPedidoDTO(
+        String tipo,
+        Long pedidoId,
+        EstadoPedido estado,
+        EstadoPedido estadoAnterior,
+        LocalDateTime fechaHora,
+        BigDecimal precioTotal,
+        Integer cantidadItems
+) {}
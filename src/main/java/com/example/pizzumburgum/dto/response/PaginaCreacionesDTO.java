@@ -0,0 +1,19 @@
+package com.example.pizzumburgum.dto.response;
+
+import com.example.pizzumburgum.dto.request.CreacionDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCreacionesDTO {
+
+    private List<CreacionDTO> creaciones;
+
+    // null cuando no hay más páginas
+    private String siguienteCursor;
+}
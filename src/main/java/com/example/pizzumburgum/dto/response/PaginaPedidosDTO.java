@@ -0,0 +1,19 @@
+package com.example.pizzumburgum.dto.response;
+
+import com.example.pizzumburgum.dto.request.PedidoDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaPedidosDTO {
+
+    private List<PedidoDTO> pedidos;
+
+    // null cuando no hay más páginas
+    private String siguienteCursor;
+}
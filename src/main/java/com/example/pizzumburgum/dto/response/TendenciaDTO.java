@@ -0,0 +1,16 @@
+package com.example.pizzumburgum.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Una posición del ranking de tendencias. cuenta/errorMaximo solo en la vista de admin:
+ * la cuenta real está entre cuenta - errorMaximo y cuenta.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TendenciaDTO(
+        int posicion,
+        Long id,
+        String nombre,
+        Long cuenta,
+        Long errorMaximo
+) {}
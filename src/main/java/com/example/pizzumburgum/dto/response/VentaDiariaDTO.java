@@ -0,0 +1,25 @@
+package com.example.pizzumburgum.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentaDiariaDTO {
+
+    private LocalDate fecha;
+    private Long cantidadPedidos;
+    private BigDecimal totalBruto;
+
+    // Clave: nombre de CategoriaProducto o CategoriaCreacion
+    private Map<String, BigDecimal> totalesPorCategoria;
+
+    // Clave: id del producto (solo productos sueltos)
+    private Map<Long, Long> unidadesPorProducto;
+}
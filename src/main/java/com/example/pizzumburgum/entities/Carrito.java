@@ -1,5 +1,6 @@
 package com.example.pizzumburgum.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.*;
@@ -31,10 +32,61 @@ public class Carrito {
     @Column(name = "total", precision = 10, scale = 2)
     private BigDecimal total = BigDecimal.ZERO;
 
-    // MEtodo para recalcular y actualizar el total del carrito
+    // Total en centavos: es el que se actualiza en cada operación (delta con signo)
+    @Transient
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private long totalCentavos;
+
+    @PostLoad
+    void cargarCentavos() {
+        this.totalCentavos = CarritoItem.aCentavos(total);
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.totalCentavos = CarritoItem.aCentavos(total);
+        this.total = BigDecimal.valueOf(totalCentavos, 2);
+    }
+
+    /* ============ Operaciones incrementales sobre el total ============ */
+
+    public void agregarItem(CarritoItem item) {
+        item.setCarrito(this);
+        items.add(item);
+        aplicarDelta(item.getSubtotalCentavos());
+    }
+
+    public void actualizarCantidad(CarritoItem item, int nuevaCantidad) {
+        long antes = item.getSubtotalCentavos();
+        item.setCantidad(nuevaCantidad);
+        aplicarDelta(item.getSubtotalCentavos() - antes);
+    }
+
+    public boolean quitarItem(CarritoItem item) {
+        if (!items.remove(item)) return false;
+        aplicarDelta(-item.getSubtotalCentavos());
+        return true;
+    }
+
+    public void vaciar() {
+        items.clear();
+        this.totalCentavos = 0L;
+        this.total = BigDecimal.valueOf(0L, 2);
+    }
+
+    private void aplicarDelta(long deltaCentavos) {
+        if (deltaCentavos == 0) return;
+        this.totalCentavos = Math.addExact(totalCentavos, deltaCentavos);
+        this.total = BigDecimal.valueOf(totalCentavos, 2);
+    }
+
+    // MEtodo para recalcular y actualizar el total del carrito (recorrido completo, solo para reparar)
     public void recalcularTotal() {
-        this.total = items.stream()
-                .map(CarritoItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long suma = 0L;
+        for (CarritoItem item : items) {
+            suma = Math.addExact(suma, item.getSubtotalCentavos());
+        }
+        this.totalCentavos = suma;
+        this.total = BigDecimal.valueOf(suma, 2);
     }
-}
\ No newline at end of file
+}
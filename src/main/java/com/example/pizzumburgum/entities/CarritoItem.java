@@ -1,6 +1,7 @@
 package com.example.pizzumburgum.entities;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
@@ -52,6 +53,12 @@ public class CarritoItem {
     @JoinColumn(name = "creacion_id")
     private Creacion creacion;
 
+    /** Precio unitario en centavos (espejo de precioUnitario para el camino caliente del carrito) */
+    @Transient
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private long precioUnitarioCentavos;
+
     /** Invariante: exactamente uno de (producto, creacion) debe estar seteado */
     @AssertTrue(message = "Debe seleccionar un producto O una creación, pero no ambos")
     public boolean isProductoXorCreacion() {
@@ -61,12 +68,23 @@ public class CarritoItem {
     /** Helper para recalcular subtotal cuando cambian cantidad o precio unitario */
     private void recomputarSubtotal() {
         if (precioUnitario != null && cantidad != null) {
-            this.subtotal = precioUnitario
-                    .multiply(BigDecimal.valueOf(cantidad))
-                    .setScale(2, RoundingMode.HALF_UP);
+            this.subtotal = BigDecimal.valueOf(getSubtotalCentavos(), 2);
         }
     }
 
+    /** Subtotal en centavos, sin allocations de BigDecimal */
+    @JsonIgnore
+    public long getSubtotalCentavos() {
+        if (cantidad == null) return 0L;
+        return Math.multiplyExact(precioUnitarioCentavos, cantidad.longValue());
+    }
+
+    /** Convierte un importe a centavos (escala 2, HALF_UP) */
+    public static long aCentavos(BigDecimal importe) {
+        if (importe == null) return 0L;
+        return importe.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
     public void setCantidad(Integer cantidad) {
         this.cantidad = cantidad;
         recomputarSubtotal();
@@ -78,9 +96,15 @@ public class CarritoItem {
         } else {
             this.precioUnitario = null;
         }
+        this.precioUnitarioCentavos = aCentavos(this.precioUnitario);
         recomputarSubtotal();
     }
 
+    @PostLoad
+    void cargarCentavos() {
+        this.precioUnitarioCentavos = aCentavos(precioUnitario);
+    }
+
     /** Ya no leemos precio de Producto/Creacion aquí: el snapshot viene del Service */
     @PrePersist
     @PreUpdate
@@ -0,0 +1,77 @@
+package com.example.pizzumburgum.entities;
+
+import com.example.pizzumburgum.enums.CategoriaCreacion;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Combinación de productos compartida entre creaciones: cada (categoría, multiconjunto
+ * de productos) distinto se guarda una sola vez, identificado por su hash canónico.
+ * Las creaciones de los usuarios solo guardan lo propio (nombre, favorita, ...) y
+ * apuntan acá, así el precio calculado es uno solo para todas.
+ */
+@Entity
+@Table(
+        name = "composiciones",
+        uniqueConstraints = @UniqueConstraint(name = "uk_composiciones_hash", columnNames = "hash")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class Composicion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256 (hex) de la categoría + ids de producto ordenados, con repeticiones
+    @Column(nullable = false, length = 64, updatable = false)
+    private String hash;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "categoria_creacion", nullable = false, length = 20, updatable = false)
+    private CategoriaCreacion categoriaCreacion;
+
+    // El índice por producto_id es el índice inverso producto -> composiciones que usa
+    // el recálculo de precios cuando cambia el precio de un producto
+    @ManyToMany
+    @JoinTable(
+            name = "composicion_productos",
+            joinColumns = @JoinColumn(name = "composicion_id"),
+            inverseJoinColumns = @JoinColumn(name = "producto_id"),
+            indexes = @Index(name = "idx_composicion_productos_producto", columnList = "producto_id")
+    )
+    private List<Producto> productos = new ArrayList<>();
+
+    /**
+     * Suma de los precios de los productos, desnormalizada: se calcula al crear la
+     * composición y se recalcula en la base solo cuando cambia el precio de uno de sus
+     * productos (ProductoService.actualizarPrecio).
+     */
+    @Column(name = "precio_total", nullable = false, precision = 10, scale = 2)
+    private BigDecimal precioTotal = BigDecimal.ZERO;
+
+    // Se incrementa en cada recálculo por cambio de precio de un producto
+    @Column(name = "version_precios", nullable = false)
+    private long versionPrecios;
+
+    public BigDecimal getPrecioTotal() {
+        return precioTotal == null ? null : precioTotal.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public void recalcularPrecioTotal() {
+        this.precioTotal = (productos == null ? BigDecimal.ZERO : productos.stream()
+                .map(Producto::getPrecio)
+                .reduce(BigDecimal.ZERO, BigDecimal::add))
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -2,14 +2,13 @@ package com.example.pizzumburgum.entities;
 
 import com.example.pizzumburgum.enums.CategoriaCreacion;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.ArrayList;
 import java.util.List;
 
 @Entity
@@ -44,30 +43,24 @@ public class Creacion {
     @Column(name = "categoria_creacion", nullable = false, length = 20)
     private CategoriaCreacion categoriaCreacion;
 
-    @ManyToMany
-    @JoinTable(
-            name = "creacion_productos",
-            joinColumns = @JoinColumn(name = "creacion_id"),
-            inverseJoinColumns = @JoinColumn(name = "producto_id")
-    )
-    private List<Producto> productos = new ArrayList<>();
+    // Combinación de productos compartida con otras creaciones iguales (ver Composicion).
+    // Lazy: las consultas que necesitan el precio la traen con JOIN FETCH
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "composicion_id")
+    @JsonIgnore
+    private Composicion composicion;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id")
     @JsonBackReference
     private Usuario usuario;
 
-    @Transient
-    private BigDecimal precioTotal;
+    public List<Producto> getProductos() {
+        return composicion == null ? List.of() : composicion.getProductos();
+    }
 
-    @Transient
+    // Precio compartido por todas las creaciones con la misma composición
     public BigDecimal getPrecioTotal() {
-        if (precioTotal != null)
-            return precioTotal.setScale(2, RoundingMode.HALF_UP);
-
-        return (productos == null ? BigDecimal.ZERO : productos.stream()
-                .map(Producto::getPrecio)
-                .reduce(BigDecimal.ZERO, BigDecimal::add))
-                .setScale(2, RoundingMode.HALF_UP);
+        return composicion == null ? BigDecimal.ZERO.setScale(2) : composicion.getPrecioTotal();
     }
 }
@@ -14,7 +14,19 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "pedidos")
+@Table(
+        name = "pedidos",
+        indexes = {
+                @Index(name = "idx_pedidos_fecha_hora", columnList = "fecha_hora"),
+                @Index(name = "idx_pedidos_estado_fecha_hora", columnList = "estado, fecha_hora"),
+                @Index(name = "idx_pedidos_usuario_fecha_hora", columnList = "usuario_id, fecha_hora")
+        },
+        uniqueConstraints = {
+                // Un reintento con la misma Idempotency-Key nunca genera un segundo pedido
+                @UniqueConstraint(name = "uk_pedidos_usuario_clave_idempotencia",
+                        columnNames = {"usuario_id", "clave_idempotencia"})
+        }
+)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,12 +42,13 @@ public class Pedido {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal precioTotal;
 
+    // varchar y no el enum nativo de MySQL: ddl-auto=update no lo amplía al agregar estados
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false, length = 20)
+    @Column(nullable = false, length = 20, columnDefinition = "varchar(20)")
     private EstadoPedido estado = EstadoPedido.PENDIENTE;
 
     @CreationTimestamp
-    @Column(nullable = false, updatable = false)
+    @Column(name = "fecha_hora", nullable = false, updatable = false)
     private LocalDateTime fechaHora;
 
     @Column(length = 1000)
@@ -44,6 +57,15 @@ public class Pedido {
     @Column(length = 255)
     private String direccionEntrega;
 
+    /** Idempotency-Key del checkout asíncrono (null en pedidos creados de forma síncrona) */
+    @Column(name = "clave_idempotencia", length = 100)
+    private String claveIdempotencia;
+
+    // Bloqueo optimista: los cambios de estado y las ediciones concurrentes se detectan en vez de pisarse
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "usuario_id", nullable = false)
     @JsonBackReference
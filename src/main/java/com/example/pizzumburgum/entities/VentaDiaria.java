@@ -0,0 +1,35 @@
+package com.example.pizzumburgum.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Agregado diario de ventas (ledger). Se actualiza de forma incremental al confirmar cada
+ * pedido y se puede reconstruir desde pedidos/pedido_items con el backfill.
+ */
+@Entity
+@Table(name = "ventas_diarias")
+@Getter
+@Setter
+@NoArgsConstructor
+public class VentaDiaria {
+
+    @Id
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "cantidad_pedidos", nullable = false)
+    private Long cantidadPedidos = 0L;
+
+    @Column(name = "total_bruto", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalBruto = BigDecimal.ZERO;
+
+    // Todos los pedidos recibidos en el día, en cualquier estado (cantidadPedidos son solo los cobrados).
+    // null = día anterior a esta columna todavía sin reparar: se cuenta desde pedidos
+    @Column(name = "cantidad_pedidos_recibidos")
+    private Long cantidadPedidosRecibidos;
+
+}
@@ -0,0 +1,33 @@
+package com.example.pizzumburgum.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** Total vendido por día y categoría (CategoriaProducto o CategoriaCreacion). */
+@Entity
+@Table(
+        name = "ventas_diarias_categorias",
+        uniqueConstraints = @UniqueConstraint(name = "uk_venta_categoria_fecha", columnNames = {"fecha", "categoria"})
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class VentaDiariaCategoria {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(nullable = false, length = 30)
+    private String categoria;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal total = BigDecimal.ZERO;
+
+}
@@ -0,0 +1,32 @@
+package com.example.pizzumburgum.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/** Unidades vendidas por día de cada producto suelto. */
+@Entity
+@Table(
+        name = "ventas_diarias_productos",
+        uniqueConstraints = @UniqueConstraint(name = "uk_venta_producto_fecha", columnNames = {"fecha", "producto_id"})
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class VentaDiariaProducto {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+
+    @Column(nullable = false)
+    private Long unidades = 0L;
+
+}
@@ -0,0 +1,9 @@
+package com.example.pizzumburgum.enums;
+
+public enum EstadoCheckout {
+    EN_COLA,
+    PROCESANDO,
+    COMPLETADO,
+    PAGO_EN_VERIFICACION,
+    FALLIDO
+}
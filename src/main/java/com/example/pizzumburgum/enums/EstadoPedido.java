@@ -1,8 +1,38 @@
 package com.example.pizzumburgum.enums;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum EstadoPedido {
     PENDIENTE,
     PREPARACION,
     EN_CAMINO,
-    ENTREGADO
+    ENTREGADO,
+    CANCELADO;
+
+    // Transiciones válidas; ENTREGADO y CANCELADO son finales
+    private static final Map<EstadoPedido, Set<EstadoPedido>> TRANSICIONES = new EnumMap<>(EstadoPedido.class);
+
+    static {
+        TRANSICIONES.put(PENDIENTE, EnumSet.of(PREPARACION, CANCELADO));
+        TRANSICIONES.put(PREPARACION, EnumSet.of(EN_CAMINO, CANCELADO));
+        TRANSICIONES.put(EN_CAMINO, EnumSet.of(ENTREGADO));
+        TRANSICIONES.put(ENTREGADO, EnumSet.noneOf(EstadoPedido.class));
+        TRANSICIONES.put(CANCELADO, EnumSet.noneOf(EstadoPedido.class));
+    }
+
+    public boolean puedePasarA(EstadoPedido destino) {
+        return TRANSICIONES.get(this).contains(destino);
+    }
+
+    // El cliente solo edita nota/dirección antes de que la cocina lo tome
+    public boolean esEditable() {
+        return this == PENDIENTE;
+    }
+
+    public Set<EstadoPedido> siguientes() {
+        return EnumSet.copyOf(TRANSICIONES.get(this));
+    }
 }
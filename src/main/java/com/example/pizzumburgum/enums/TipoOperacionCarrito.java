@@ -0,0 +1,8 @@
+package com.example.pizzumburgum.enums;
+
+public enum TipoOperacionCarrito {
+    AGREGAR_PRODUCTO,
+    AGREGAR_CREACION,
+    ACTUALIZAR_CANTIDAD,
+    ELIMINAR_ITEM
+}
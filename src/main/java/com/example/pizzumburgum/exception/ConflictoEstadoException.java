@@ -0,0 +1,8 @@
+package com.example.pizzumburgum.exception;
+
+public class ConflictoEstadoException extends RuntimeException {
+
+    public ConflictoEstadoException(String message) {
+        super(message);
+    }
+}
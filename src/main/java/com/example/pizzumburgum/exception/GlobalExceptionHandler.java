@@ -2,6 +2,7 @@ package com.example.pizzumburgum.exception;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -37,4 +38,30 @@ public class GlobalExceptionHandler {
                 .body(Map.of("error", ex.getMessage()));
     }
 
+    @ExceptionHandler(PagoRechazadoException.class)
+    public ResponseEntity<Map<String, Object>> handlePagoRechazado(PagoRechazadoException ex) {
+        return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED)
+                .body(Map.of("error", ex.getMessage(), "pedidoId", ex.getPedidoId()));
+    }
+
+    // No se sabe si la pasarela cobró: el pedido existe y se resuelve por conciliación (no reintentar)
+    @ExceptionHandler(PagoEnVerificacionException.class)
+    public ResponseEntity<Map<String, Object>> handlePagoEnVerificacion(PagoEnVerificacionException ex) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(Map.of("error", ex.getMessage(), "pedidoId", ex.getPedidoId()));
+    }
+
+    @ExceptionHandler(ConflictoEstadoException.class)
+    public ResponseEntity<Map<String, String>> handleConflictoEstado(ConflictoEstadoException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", ex.getMessage()));
+    }
+
+    // @Version: otra transacción modificó la fila entre la lectura y la escritura
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLock(ObjectOptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "El pedido fue modificado por otra operación, recargalo e intentá de nuevo"));
+    }
+
 }
@@ -0,0 +1,16 @@
+package com.example.pizzumburgum.exception;
+
+public class PagoEnVerificacionException extends RuntimeException {
+
+    // Pedido que quedó PENDIENTE con el pago PROCESANDO hasta la conciliación
+    private final Long pedidoId;
+
+    public PagoEnVerificacionException(Long pedidoId, String message) {
+        super(message);
+        this.pedidoId = pedidoId;
+    }
+
+    public Long getPedidoId() {
+        return pedidoId;
+    }
+}
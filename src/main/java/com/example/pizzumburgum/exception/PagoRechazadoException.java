@@ -0,0 +1,16 @@
+package com.example.pizzumburgum.exception;
+
+public class PagoRechazadoException extends RuntimeException {
+
+    // Pedido que quedó CANCELADO por el rechazo
+    private final Long pedidoId;
+
+    public PagoRechazadoException(Long pedidoId, String message) {
+        super(message);
+        this.pedidoId = pedidoId;
+    }
+
+    public Long getPedidoId() {
+        return pedidoId;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.pizzumburgum.migracion;
+
+import com.example.pizzumburgum.entities.Composicion;
+import com.example.pizzumburgum.entities.Producto;
+import com.example.pizzumburgum.enums.CategoriaCreacion;
+import com.example.pizzumburgum.repository.CreacionRepositorio;
+import com.example.pizzumburgum.service.CatalogoService;
+import com.example.pizzumburgum.service.ComposicionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Creaciones guardadas antes de las composiciones: sus productos siguen en la tabla
+ * vieja creacion_productos. Se pasan una vez a su composición compartida.
+ * Si ya no existe ninguno de sus productos, reciben la composición vacía de su
+ * categoría (precio 0, el carrito no las acepta): así no quedan pendientes y no se
+ * vuelven a escanear en cada arranque, y los pedidos que las referencian siguen intactos.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MigracionComposiciones {
+
+    private final ComposicionService composicionService;
+    private final CreacionRepositorio creacionRepositorio;
+    private final CatalogoService catalogoService;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrar() {
+        long pendientes = creacionRepositorio.countSinComposicion();
+        if (pendientes == 0) return;
+
+        // creacionId -> [categoría, ids de producto]
+        Map<Long, CategoriaCreacion> categorias = new LinkedHashMap<>();
+        Map<Long, List<Long>> productoIds = new HashMap<>();
+        for (Object[] fila : creacionRepositorio.findProductosLegadosSinComposicion()) {
+            Long creacionId = ((Number) fila[0]).longValue();
+            categorias.putIfAbsent(creacionId, CategoriaCreacion.valueOf((String) fila[1]));
+            List<Long> ids = productoIds.computeIfAbsent(creacionId, k -> new ArrayList<>());
+            if (fila[2] != null) ids.add(((Number) fila[2]).longValue());
+        }
+
+        int migradas = 0;
+        int sinProductos = 0;
+        for (Map.Entry<Long, CategoriaCreacion> entrada : categorias.entrySet()) {
+            List<Producto> productos = new ArrayList<>();
+            for (Long productoId : productoIds.get(entrada.getKey())) {
+                catalogoService.buscarPorId(productoId).ifPresent(productos::add);
+            }
+            if (productos.isEmpty()) sinProductos++;
+
+            // Una transacción por creación: un fallo a mitad deja migradas las anteriores
+            Composicion composicion = composicionService.obtenerOCrear(entrada.getValue(), productos);
+            transactionTemplate.executeWithoutResult(status -> {
+                creacionRepositorio.asignarComposicion(entrada.getKey(), composicion.getId());
+                creacionRepositorio.eliminarProductosLegados(entrada.getKey());
+            });
+            migradas++;
+        }
+        log.info("Creaciones migradas a composiciones compartidas: {} de {} ({} sin productos vigentes, inutilizables)",
+                migradas, pendientes, sinProductos);
+    }
+}
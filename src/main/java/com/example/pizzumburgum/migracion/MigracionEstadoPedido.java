@@ -0,0 +1,40 @@
+package com.example.pizzumburgum.migracion;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Bases creadas antes de CANCELADO tienen pedidos.estado como enum nativo de MySQL con
+ * los estados de entonces, y ddl-auto=update no lo altera: se pasa una vez a varchar.
+ * Idempotente: si la columna ya no es enum no hace nada.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MigracionEstadoPedido {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrar() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<?> tipo = entityManager.createNativeQuery("""
+                    SELECT DATA_TYPE FROM information_schema.COLUMNS
+                    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'pedidos' AND COLUMN_NAME = 'estado'
+                    """).getResultList();
+            if (tipo.isEmpty() || !"enum".equalsIgnoreCase(String.valueOf(tipo.get(0)))) return;
+
+            entityManager.createNativeQuery("ALTER TABLE pedidos MODIFY estado VARCHAR(20) NOT NULL")
+                    .executeUpdate();
+            log.info("Columna pedidos.estado migrada de enum a varchar(20)");
+        });
+    }
+}
@@ -2,11 +2,30 @@ package com.example.pizzumburgum.repository;
 
 import com.example.pizzumburgum.entities.Carrito;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CarritoRepositorio extends JpaRepository<Carrito, Long> {
 
     // (buscar por el id del usuario):
     Optional<Carrito> findByUsuarioId(Long usuarioId);
+
+    // Carga completa para el carrito en memoria: items + producto/creación en una sola consulta
+    @Query("SELECT DISTINCT c FROM Carrito c " +
+            "LEFT JOIN FETCH c.items i " +
+            "LEFT JOIN FETCH i.producto " +
+            "LEFT JOIN FETCH i.creacion cr " +
+            "LEFT JOIN FETCH cr.composicion " +
+            "WHERE c.usuario.id = :usuarioId")
+    Optional<Carrito> findByUsuarioIdWithItems(@Param("usuarioId") Long usuarioId);
+
+    // Flush en lote del carrito en memoria: solo hacen falta las líneas, no sus productos
+    @Query("SELECT DISTINCT c FROM Carrito c " +
+            "LEFT JOIN FETCH c.items " +
+            "WHERE c.id IN :ids")
+    List<Carrito> findAllWithItemsByIds(@Param("ids") Collection<Long> ids);
 }
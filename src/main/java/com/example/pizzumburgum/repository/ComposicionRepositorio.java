@@ -0,0 +1,38 @@
+package com.example.pizzumburgum.repository;
+
+import com.example.pizzumburgum.entities.Composicion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ComposicionRepositorio extends JpaRepository<Composicion, Long> {
+
+    @Query("SELECT c FROM Composicion c LEFT JOIN FETCH c.productos WHERE c.hash = :hash")
+    Optional<Composicion> findByHashWithProductos(@Param("hash") String hash);
+
+    // Pares [composicionId, productoId] de varias composiciones en un solo viaje
+    @Query("SELECT c.id, p.id FROM Composicion c JOIN c.productos p WHERE c.id IN :ids")
+    List<Object[]> findProductoIdsByComposicionIds(@Param("ids") Collection<Long> ids);
+
+    // Pares [composicionId, categoría]: etiqueta genérica del ranking público
+    @Query("SELECT c.id, c.categoriaCreacion FROM Composicion c WHERE c.id IN :ids")
+    List<Object[]> findCategoriasByIds(@Param("ids") Collection<Long> ids);
+
+    // Recalcula en la base el precio de las composiciones que contienen el producto
+    // (índice inverso composicion_productos.producto_id); productos repetidos suman cada vez
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE composiciones c SET " +
+            "c.precio_total = (SELECT COALESCE(SUM(p.precio), 0) FROM composicion_productos cp " +
+            "JOIN productos p ON p.id = cp.producto_id WHERE cp.composicion_id = c.id), " +
+            "c.version_precios = c.version_precios + 1 " +
+            "WHERE c.id IN (SELECT cp2.composicion_id FROM composicion_productos cp2 WHERE cp2.producto_id = :productoId)",
+            nativeQuery = true)
+    int recalcularPreciosConProducto(@Param("productoId") Long productoId);
+}
@@ -1,20 +1,64 @@
 package com.example.pizzumburgum.repository;
 
 import com.example.pizzumburgum.entities.Creacion;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CreacionRepositorio extends JpaRepository<Creacion, Long> {
 
-    @Query("SELECT c FROM Creacion c LEFT JOIN FETCH c.productos LEFT JOIN FETCH c.usuario WHERE c.id = :id")
+    @Query("SELECT c FROM Creacion c LEFT JOIN FETCH c.composicion comp LEFT JOIN FETCH comp.productos " +
+            "LEFT JOIN FETCH c.usuario WHERE c.id = :id")
     Optional<Creacion> findByIdWithProductos(@Param("id") Long id);
 
-    List<Creacion> findByUsuarioIdOrderByIdDesc(Long usuarioId);
+    // Con la composición (precio), sin productos: lo que necesita el carrito
+    @Query("SELECT c FROM Creacion c LEFT JOIN FETCH c.composicion WHERE c.id = :id")
+    Optional<Creacion> findByIdWithComposicion(@Param("id") Long id);
 
+    @Query("SELECT c FROM Creacion c LEFT JOIN FETCH c.composicion WHERE c.id IN :ids")
+    List<Creacion> findAllWithComposicionByIds(@Param("ids") Collection<Long> ids);
+
+    // Filas [composicionId, nombre de una creación con esa composición]: ranking de admin, sin cargar entidades
+    @Query("SELECT c.composicion.id, MIN(c.nombre) FROM Creacion c WHERE c.composicion.id IN :ids GROUP BY c.composicion.id")
+    List<Object[]> findNombrePorComposicionIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT c FROM Creacion c LEFT JOIN FETCH c.composicion WHERE c.usuario.id = :usuarioId ORDER BY c.id DESC")
+    List<Creacion> findByUsuarioIdOrderByIdDesc(@Param("usuarioId") Long usuarioId);
+
+    // Fase 1 del listado: una página de creaciones del usuario con su composición (sin productos), keyset por id
+    @Query("SELECT c FROM Creacion c LEFT JOIN FETCH c.composicion WHERE c.usuario.id = :usuarioId " +
+            "AND (:antesDe IS NULL OR c.id < :antesDe) ORDER BY c.id DESC")
+    List<Creacion> findPaginaDeUsuario(@Param("usuarioId") Long usuarioId,
+                                       @Param("antesDe") Long antesDe,
+                                       Pageable pageable);
+
+
+    // Migración: creaciones anteriores a las composiciones
+    @Query("SELECT COUNT(c) FROM Creacion c WHERE c.composicion IS NULL")
+    long countSinComposicion();
+
+    // Filas [creacionId, categoria, productoId] de la tabla vieja creacion_productos
+    // (productoId null: la creación no tiene filas ahí)
+    @Query(value = "SELECT c.id, c.categoria_creacion, cp.producto_id FROM creaciones c " +
+            "LEFT JOIN creacion_productos cp ON cp.creacion_id = c.id " +
+            "WHERE c.composicion_id IS NULL ORDER BY c.id",
+            nativeQuery = true)
+    List<Object[]> findProductosLegadosSinComposicion();
+
+    @Modifying
+    @Query(value = "UPDATE creaciones SET composicion_id = :composicionId WHERE id = :id", nativeQuery = true)
+    int asignarComposicion(@Param("id") Long id, @Param("composicionId") Long composicionId);
+
+    // Sin mapeo a creacion_productos, sus filas impedirían borrar la creación (FK)
+    @Modifying
+    @Query(value = "DELETE FROM creacion_productos WHERE creacion_id = :id", nativeQuery = true)
+    int eliminarProductosLegados(@Param("id") Long id);
 }
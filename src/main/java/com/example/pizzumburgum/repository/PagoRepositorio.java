@@ -1,12 +1,32 @@
 package com.example.pizzumburgum.repository;
 
 import com.example.pizzumburgum.entities.Pago;
+import com.example.pizzumburgum.enums.EstadoPago;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface PagoRepositorio extends JpaRepository<Pago, Long> {
 
     // Buscar pago por pedido
     Pago findByPedidoId(Long pedidoId);
+
+    boolean existsByPedidoIdAndEstado(Long pedidoId, EstadoPago estado);
+
+    // Conciliación: [pedidoId, usuarioId, tarjetaId, monto] de los pagos que siguen en un estado desde antes de 'antesDe'
+    @Query("""
+            SELECT p.pedido.id, p.pedido.usuario.id, t.id, p.monto FROM Pago p
+            LEFT JOIN p.tarjeta t
+            WHERE p.estado = :estado AND p.fechaPago < :antesDe
+            ORDER BY p.id
+            """)
+    List<Object[]> findSolicitudesByEstadoAntesDe(@Param("estado") EstadoPago estado,
+                                                  @Param("antesDe") LocalDateTime antesDe,
+                                                  Pageable pageable);
 }
@@ -2,25 +2,35 @@ package com.example.pizzumburgum.repository;
 
 import com.example.pizzumburgum.entities.Pedido;
 import com.example.pizzumburgum.enums.EstadoPedido;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PedidoRepositorio extends JpaRepository<Pedido, Long> {
 
-    // Buscar pedidos por fecha exacta
-    @Query("SELECT p FROM Pedido p WHERE DATE(p.fechaHora) = :fecha ORDER BY p.fechaHora DESC")
-    List<Pedido> findByFecha(@Param("fecha") LocalDate fecha);
+    @Query("SELECT p.estado FROM Pedido p WHERE p.id = :id")
+    Optional<EstadoPedido> findEstadoById(@Param("id") Long id);
 
-    // Buscar pedidos por rango de fechas
-    @Query("SELECT p FROM Pedido p WHERE p.fechaHora BETWEEN :inicio AND :fin ORDER BY p.fechaHora DESC")
-    List<Pedido> findByFechaRange(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+    // Cambio de estado condicional: 0 filas = otro cambio ganó la carrera (o la versión no coincide)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Pedido p SET p.estado = :nuevo, p.version = p.version + 1 " +
+            "WHERE p.id = :id AND p.estado = :esperado AND (:version IS NULL OR p.version = :version)")
+    int actualizarEstado(@Param("id") Long id,
+                         @Param("esperado") EstadoPedido esperado,
+                         @Param("nuevo") EstadoPedido nuevo,
+                         @Param("version") Long version);
+
+    // Buscar pedidos de un día: rango semiabierto [start, end) para poder usar el índice de fecha_hora
+    @Query("SELECT p FROM Pedido p WHERE p.fechaHora >= :start AND p.fechaHora < :end ORDER BY p.fechaHora DESC")
+    List<Pedido> findByFecha(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
     // Buscar pedidos de un usuario
     List<Pedido> findByUsuarioIdOrderByFechaHoraDesc(Long usuarioId);
@@ -28,36 +38,91 @@ public interface PedidoRepositorio extends JpaRepository<Pedido, Long> {
     // Buscar por estado
     List<Pedido> findByEstadoOrderByFechaHoraDesc(EstadoPedido estado);
 
-    // Contar pedidos por fecha
-    @Query("SELECT COUNT(p) FROM Pedido p WHERE DATE(p.fechaHora) = :fecha")
-    Long countByFecha(@Param("fecha") LocalDate fecha);
-
     // Buscar todos ordenados por fecha
     List<Pedido> findAllByOrderByFechaHoraDesc();
 
 
+    ///  Consultas en dos fases para listados (ids primero, luego fetch)  ///
+    // Evitan el N+1 de usuario/items/producto/creacion/pago al convertir a DTO
+
+    @Query("SELECT p.id FROM Pedido p ORDER BY p.fechaHora DESC, p.id DESC")
+    List<Long> findAllIdsOrderByFechaHoraDesc();
+
+    // Rango semiabierto [start, end): sirve tanto para un día como para un rango de días
+    @Query("SELECT p.id FROM Pedido p WHERE p.fechaHora >= :start AND p.fechaHora < :end ORDER BY p.fechaHora DESC, p.id DESC")
+    List<Long> findIdsByFechaRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT p.id FROM Pedido p WHERE p.estado = :estado ORDER BY p.fechaHora DESC, p.id DESC")
+    List<Long> findIdsByEstado(@Param("estado") EstadoPedido estado);
+
+    @Query("SELECT p.id FROM Pedido p WHERE p.usuario.id = :usuarioId ORDER BY p.fechaHora DESC, p.id DESC")
+    List<Long> findIdsByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+
+    ///  Paginación por cursor (keyset) sobre (fechaHora, id)  ///
+
+    @Query("SELECT p.id FROM Pedido p ORDER BY p.fechaHora DESC, p.id DESC")
+    List<Long> findIdsPrimeraPagina(Pageable pageable);
+
+    // Página siguiente: pedidos estrictamente anteriores al último (fechaHora, id) entregado
+    @Query("""
+            SELECT p.id
+            FROM Pedido p
+            WHERE p.fechaHora < :fechaHora
+               OR (p.fechaHora = :fechaHora AND p.id < :id)
+            ORDER BY p.fechaHora DESC, p.id DESC
+            """)
+    List<Long> findIdsAntesDe(@Param("fechaHora") LocalDateTime fechaHora,
+                              @Param("id") Long id,
+                              Pageable pageable);
+
+
     ///  Nuevas consultas para DGI  ///
-    // IDs de pedidos con pago en un rango de fecha/hora (día completo)
+    // IDs de pedidos con pago aprobado en un rango de fecha/hora (día completo)
     @Query("""
             select p.id
             from Pedido p
             where p.fechaHora >= :start and p.fechaHora < :end
-              and p.pago is not null
+              and p.pago.estado = com.example.pizzumburgum.enums.EstadoPago.APROBADO
             """)
     List<Long> findIdsWithPagoByDateRange(@Param("start") LocalDateTime start,
                                           @Param("end") LocalDateTime end);
 
+    // Igual que la anterior pero por lotes: ids mayores a :desdeId, en orden ascendente
+    @Query("""
+            select p.id
+            from Pedido p
+            where p.fechaHora >= :start and p.fechaHora < :end
+              and p.pago.estado = com.example.pizzumburgum.enums.EstadoPago.APROBADO
+              and p.id > :desdeId
+            order by p.id
+            """)
+    List<Long> findIdsWithPagoByDateRangeAfter(@Param("start") LocalDateTime start,
+                                               @Param("end") LocalDateTime end,
+                                               @Param("desdeId") Long desdeId,
+                                               Pageable pageable);
+
     // Carga el pedido con sus items y pago en una sola pasada
     @Query("""
             SELECT DISTINCT p
             FROM Pedido p
             LEFT JOIN FETCH p.items i
             LEFT JOIN FETCH i.producto
-            LEFT JOIN FETCH i.creacion
+            LEFT JOIN FETCH i.creacion cr
+            LEFT JOIN FETCH cr.composicion
             LEFT JOIN FETCH p.pago
             LEFT JOIN FETCH p.usuario
             WHERE p.id IN :ids
             """)
     List<Pedido> findAllWithItemsAndPagoByIds(@Param("ids") List<Long> ids);
 
-}
\ No newline at end of file
+    // Checkout asíncrono: pedido ya creado con esa Idempotency-Key (con el pago, para saber cómo terminó)
+    @Query("""
+            SELECT p
+            FROM Pedido p
+            LEFT JOIN FETCH p.pago
+            WHERE p.usuario.id = :usuarioId AND p.claveIdempotencia = :claveIdempotencia
+            """)
+    Optional<Pedido> findByUsuarioIdAndClaveIdempotencia(@Param("usuarioId") Long usuarioId,
+                                                         @Param("claveIdempotencia") String claveIdempotencia);
+}
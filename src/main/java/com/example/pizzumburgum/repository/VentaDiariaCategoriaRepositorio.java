@@ -0,0 +1,32 @@
+package com.example.pizzumburgum.repository;
+
+import com.example.pizzumburgum.entities.VentaDiariaCategoria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface VentaDiariaCategoriaRepositorio extends JpaRepository<VentaDiariaCategoria, Long> {
+
+    List<VentaDiariaCategoria> findByFecha(LocalDate fecha);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO ventas_diarias_categorias (fecha, categoria, total)
+            VALUES (:fecha, :categoria, :total)
+            ON DUPLICATE KEY UPDATE total = total + VALUES(total)
+            """, nativeQuery = true)
+    int sumar(@Param("fecha") LocalDate fecha,
+              @Param("categoria") String categoria,
+              @Param("total") BigDecimal total);
+
+    @Modifying
+    @Query("DELETE FROM VentaDiariaCategoria v WHERE v.fecha = :fecha")
+    int deleteByFecha(@Param("fecha") LocalDate fecha);
+}
@@ -0,0 +1,31 @@
+package com.example.pizzumburgum.repository;
+
+import com.example.pizzumburgum.entities.VentaDiariaProducto;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface VentaDiariaProductoRepositorio extends JpaRepository<VentaDiariaProducto, Long> {
+
+    List<VentaDiariaProducto> findByFecha(LocalDate fecha);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO ventas_diarias_productos (fecha, producto_id, unidades)
+            VALUES (:fecha, :productoId, :unidades)
+            ON DUPLICATE KEY UPDATE unidades = unidades + VALUES(unidades)
+            """, nativeQuery = true)
+    int sumar(@Param("fecha") LocalDate fecha,
+              @Param("productoId") Long productoId,
+              @Param("unidades") long unidades);
+
+    @Modifying
+    @Query("DELETE FROM VentaDiariaProducto v WHERE v.fecha = :fecha")
+    int deleteByFecha(@Param("fecha") LocalDate fecha);
+}
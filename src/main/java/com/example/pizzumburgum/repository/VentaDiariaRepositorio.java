@@ -0,0 +1,116 @@
+package com.example.pizzumburgum.repository;
+
+import com.example.pizzumburgum.entities.VentaDiaria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface VentaDiariaRepositorio extends JpaRepository<VentaDiaria, LocalDate> {
+
+    // Suma atómica (upsert): evita leer-modificar-escribir con pedidos concurrentes del mismo día
+    @Modifying
+    @Query(value = """
+            INSERT INTO ventas_diarias (fecha, cantidad_pedidos, total_bruto)
+            VALUES (:fecha, :cantidad, :total)
+            ON DUPLICATE KEY UPDATE
+                cantidad_pedidos = cantidad_pedidos + VALUES(cantidad_pedidos),
+                total_bruto = total_bruto + VALUES(total_bruto)
+            """, nativeQuery = true)
+    int sumar(@Param("fecha") LocalDate fecha,
+              @Param("cantidad") long cantidad,
+              @Param("total") BigDecimal total);
+
+    // Un pedido recibido más (al crearlo, antes del pago). Si la fila es de antes de la columna
+    // (NULL) sigue en NULL: NULL + 1 no inventa una cuenta parcial, la completa el backfill
+    @Modifying
+    @Query(value = """
+            INSERT INTO ventas_diarias (fecha, cantidad_pedidos, total_bruto, cantidad_pedidos_recibidos)
+            VALUES (:fecha, 0, 0, 1)
+            ON DUPLICATE KEY UPDATE
+                cantidad_pedidos_recibidos = cantidad_pedidos_recibidos + 1
+            """, nativeQuery = true)
+    int sumarRecibido(@Param("fecha") LocalDate fecha);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO ventas_diarias (fecha, cantidad_pedidos, total_bruto, cantidad_pedidos_recibidos)
+            VALUES (:fecha, 0, 0, :cantidad)
+            ON DUPLICATE KEY UPDATE
+                cantidad_pedidos_recibidos = VALUES(cantidad_pedidos_recibidos)
+            """, nativeQuery = true)
+    int fijarRecibidos(@Param("fecha") LocalDate fecha,
+                       @Param("cantidad") long cantidad);
+
+    @Query("SELECT v.cantidadPedidosRecibidos FROM VentaDiaria v WHERE v.fecha = :fecha")
+    Optional<Long> findCantidadRecibidosByFecha(@Param("fecha") LocalDate fecha);
+
+    @Modifying
+    @Query("DELETE FROM VentaDiaria v WHERE v.fecha = :fecha")
+    int deleteByFecha(@Param("fecha") LocalDate fecha);
+
+
+    ///  Agregados desde las tablas crudas (para el backfill)  ///
+    // Misma regla que el camino incremental: pago APROBADO y pedido no cancelado
+
+    // Todos los pedidos del día, en cualquier estado (columna cantidad_pedidos_recibidos)
+    @Query("SELECT COUNT(p) FROM Pedido p WHERE p.fechaHora >= :start AND p.fechaHora < :end")
+    Long contarRecibidos(@Param("start") LocalDateTime start,
+                         @Param("end") LocalDateTime end);
+
+    // [cantidad de pedidos, total bruto]
+    @Query("""
+            SELECT COUNT(p), COALESCE(SUM(p.precioTotal), 0)
+            FROM Pedido p JOIN p.pago pg
+            WHERE p.fechaHora >= :start AND p.fechaHora < :end
+              AND p.estado <> com.example.pizzumburgum.enums.EstadoPedido.CANCELADO
+              AND pg.estado = com.example.pizzumburgum.enums.EstadoPago.APROBADO
+            """)
+    List<Object[]> agregarPedidos(@Param("start") LocalDateTime start,
+                                  @Param("end") LocalDateTime end);
+
+    // [CategoriaProducto, total]
+    @Query("""
+            SELECT pr.categoria, SUM(i.subtotal)
+            FROM PedidoItem i JOIN i.producto pr JOIN i.pedido p JOIN p.pago pg
+            WHERE p.fechaHora >= :start AND p.fechaHora < :end
+              AND p.estado <> com.example.pizzumburgum.enums.EstadoPedido.CANCELADO
+              AND pg.estado = com.example.pizzumburgum.enums.EstadoPago.APROBADO
+            GROUP BY pr.categoria
+            """)
+    List<Object[]> agregarPorCategoriaProducto(@Param("start") LocalDateTime start,
+                                               @Param("end") LocalDateTime end);
+
+    // [CategoriaCreacion, total]
+    @Query("""
+            SELECT c.categoriaCreacion, SUM(i.subtotal)
+            FROM PedidoItem i JOIN i.creacion c JOIN i.pedido p JOIN p.pago pg
+            WHERE p.fechaHora >= :start AND p.fechaHora < :end
+              AND p.estado <> com.example.pizzumburgum.enums.EstadoPedido.CANCELADO
+              AND pg.estado = com.example.pizzumburgum.enums.EstadoPago.APROBADO
+            GROUP BY c.categoriaCreacion
+            """)
+    List<Object[]> agregarPorCategoriaCreacion(@Param("start") LocalDateTime start,
+                                               @Param("end") LocalDateTime end);
+
+    // [productoId, unidades]
+    @Query("""
+            SELECT pr.id, SUM(i.cantidad)
+            FROM PedidoItem i JOIN i.producto pr JOIN i.pedido p JOIN p.pago pg
+            WHERE p.fechaHora >= :start AND p.fechaHora < :end
+              AND p.estado <> com.example.pizzumburgum.enums.EstadoPedido.CANCELADO
+              AND pg.estado = com.example.pizzumburgum.enums.EstadoPago.APROBADO
+            GROUP BY pr.id
+            """)
+    List<Object[]> agregarUnidadesPorProducto(@Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end);
+
+}
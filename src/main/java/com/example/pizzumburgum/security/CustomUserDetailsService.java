@@ -3,17 +3,33 @@ package com.example.pizzumburgum.security;
 import com.example.pizzumburgum.entities.Usuario;
 import com.example.pizzumburgum.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Service
 @RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UsuarioRepository usuarioRepository;
 
+    // TTL corto: acota cuánto tiempo se sirve un rol/contraseña desactualizado
+    @Value("${usuarios.cache.ttl-ms:60000}")
+    private long ttlCacheMillis;
+
+    // Usuarios recientes, indexados por email
+    private final Map<String, UsuarioCacheado> cacheUsuarios = new ConcurrentHashMap<>();
+
+    private record UsuarioCacheado(CustomUserDetails detalles, long expiraEnMillis) {}
+
+    /**
+     * Siempre consulta la base de datos: lo usa el login, que necesita la contraseña vigente.
+     */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         Usuario usuario = usuarioRepository.findByEmail(email)
@@ -22,4 +38,32 @@ public class CustomUserDetailsService implements UserDetailsService {
         return CustomUserDetails.build(usuario);
     }
 
+    /**
+     * Igual que {@link #loadUserByUsername(String)} pero respaldado por una cache de TTL corto.
+     * Lo usan los caminos que todavía necesitan datos del usuario (tokens sin id/rol).
+     */
+    public UserDetails cargarUsuarioCacheado(String email) throws UsernameNotFoundException {
+        long ahora = System.currentTimeMillis();
+
+        UsuarioCacheado cacheado = cacheUsuarios.get(email);
+        if (cacheado != null && cacheado.expiraEnMillis() > ahora) {
+            return cacheado.detalles();
+        }
+
+        CustomUserDetails detalles = (CustomUserDetails) loadUserByUsername(email);
+        cacheUsuarios.put(email, new UsuarioCacheado(detalles, ahora + ttlCacheMillis));
+        return detalles;
+    }
+
+    /** Debe llamarse cuando cambia el rol o la contraseña del usuario. */
+    public void invalidar(String email) {
+        if (email != null) {
+            cacheUsuarios.remove(email);
+        }
+    }
+
+    public void invalidarTodo() {
+        cacheUsuarios.clear();
+    }
+
 }
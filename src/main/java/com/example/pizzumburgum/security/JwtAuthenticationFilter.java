@@ -1,10 +1,12 @@
 package com.example.pizzumburgum.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,6 +16,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -22,6 +25,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
     private final CustomUserDetailsService userDetailsService;
 
+    private static final String PARAMETRO_TICKET = "ticket";
+
+    @Value("${jwt.stateless:true}")
+    private boolean stateless;
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
         String path = request.getRequestURI();
@@ -39,10 +47,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
+            boolean deQuery = jwt == null && esStreamEventos(request);
+            if (deQuery) {
+                jwt = request.getParameter(PARAMETRO_TICKET);
+            }
 
-            if (jwt != null && jwtService.validarToken(jwt)) {
-                String email = jwtService.extraerEmail(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+            Optional<Claims> claims = (jwt != null) ? jwtService.validarYExtraerClaims(jwt) : Optional.empty();
+            // En la query solo vale un ticket de eventos (un token de sesión ahí terminaría en logs),
+            // y un ticket de eventos no sirve para ningún otro endpoint
+            claims = claims.filter(c -> jwtService.esTicketEventos(c) == deQuery);
+
+            if (claims.isPresent()) {
+                UserDetails userDetails = resolverUsuario(claims.get());
 
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(
@@ -61,6 +77,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // En modo stateless el principal sale de los claims; si el token no trae id/rol
+    // (emitido antes de este modo) se recurre a la cache de usuarios.
+    private UserDetails resolverUsuario(Claims claims) {
+        if (stateless) {
+            Optional<CustomUserDetails> principal = jwtService.construirPrincipal(claims);
+            if (principal.isPresent()) {
+                return principal.get();
+            }
+        }
+        return userDetailsService.cargarUsuarioCacheado(claims.getSubject());
+    }
+
+    // EventSource no puede mandar headers: los streams SSE aceptan ?ticket=
+    private static boolean esStreamEventos(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) && request.getRequestURI().endsWith("/eventos");
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
@@ -2,29 +2,70 @@ package com.example.pizzumburgum.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    public static final String CLAIM_USUARIO_ID = "uid";
+    public static final String CLAIM_ROL = "rol";
+    public static final String CLAIM_USO = "uso";
+    public static final String USO_EVENTOS = "eventos";
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private Long expiration;
 
-    private SecretKey getSigningKey() {
+    // Vida del ticket de SSE: solo tiene que alcanzar para abrir la conexión
+    @Value("${jwt.eventos.ticket-ms:60000}")
+    private long expiracionTicketEventos;
+
+    // Máximo de tokens verificados que se mantienen en memoria
+    @Value("${jwt.cache.max-entries:10000}")
+    private int maxEntradasCache;
+
+    // Clave y parser se construyen una sola vez (son inmutables y thread-safe)
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Claims ya verificados, indexados por el SHA-256 del token
+    private final Map<String, ClaimsVerificados> cacheClaims = new ConcurrentHashMap<>();
+
+    private record ClaimsVerificados(Claims claims, long expiraEnMillis) {
+        boolean vencido(long ahora) {
+            return expiraEnMillis <= ahora;
+        }
+    }
+
+    @PostConstruct
+    void inicializar() {
         byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
+
+    private SecretKey getSigningKey() {
+        return signingKey;
     }
 
     public String generarToken(UserDetails userDetails) {
@@ -34,13 +75,45 @@ public class JwtService {
 
     public String generarToken(String email, String rol) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("rol", rol);
+        claims.put(CLAIM_ROL, rol);
         return crearToken(claims, email);
     }
 
+    /** Token autocontenido: incluye id y rol para autenticar sin ir a la base de datos. */
+    public String generarToken(Long usuarioId, String email, String rol) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USUARIO_ID, usuarioId);
+        claims.put(CLAIM_ROL, rol);
+        return crearToken(claims, email);
+    }
+
+    /**
+     * Ticket de vida corta para abrir un stream SSE: EventSource no puede mandar el header
+     * Authorization, así que viaja en la query. El filtro solo lo acepta en los endpoints /eventos.
+     */
+    public String generarTicketEventos(CustomUserDetails usuario) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USUARIO_ID, usuario.getId());
+        claims.put(CLAIM_ROL, usuario.getRol());
+        claims.put(CLAIM_USO, USO_EVENTOS);
+        return crearToken(claims, usuario.getUsername(), expiracionTicketEventos);
+    }
+
+    public long getExpiracionTicketEventos() {
+        return expiracionTicketEventos;
+    }
+
+    public boolean esTicketEventos(Claims claims) {
+        return USO_EVENTOS.equals(claims.get(CLAIM_USO, String.class));
+    }
+
     private String crearToken(Map<String, Object> claims, String subject) {
+        return crearToken(claims, subject, expiration);
+    }
+
+    private String crearToken(Map<String, Object> claims, String subject, long vigenciaMillis) {
         Date now = new Date();
-        Date expirationDate = new Date(now.getTime() + expiration);
+        Date expirationDate = new Date(now.getTime() + vigenciaMillis);
 
         return Jwts.builder()
                 .claims(claims)
@@ -65,11 +138,7 @@ public class JwtService {
     }
 
     private Claims extraerTodosLosClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return verificar(token);
     }
 
     private Boolean isTokenExpirado(String token) {
@@ -82,14 +151,84 @@ public class JwtService {
     }
 
     public Boolean validarToken(String token) {
+        return validarYExtraerClaims(token).isPresent();
+    }
+
+    /**
+     * Valida el token y devuelve sus claims. La firma se verifica una sola vez
+     * mientras el token permanezca en cache; un token inválido o vencido devuelve vacío.
+     */
+    public Optional<Claims> validarYExtraerClaims(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            return Optional.of(verificar(token));
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Construye el principal directamente desde los claims, sin consultar la base de datos.
+     * Devuelve vacío si el token es anterior al modo stateless (no trae id o rol).
+     */
+    public Optional<CustomUserDetails> construirPrincipal(Claims claims) {
+        Number usuarioId = claims.get(CLAIM_USUARIO_ID, Number.class);
+        String rol = claims.get(CLAIM_ROL, String.class);
+        if (usuarioId == null || rol == null || claims.getSubject() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new CustomUserDetails(usuarioId.longValue(), claims.getSubject(), null, rol));
+    }
+
+    /* ============ Cache de claims verificados ============ */
+
+    private Claims verificar(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("Token vacío");
+        }
+
+        long ahora = System.currentTimeMillis();
+        String clave = digest(token);
+
+        ClaimsVerificados cacheado = cacheClaims.get(clave);
+        if (cacheado != null) {
+            if (!cacheado.vencido(ahora)) {
+                return cacheado.claims();
+            }
+            cacheClaims.remove(clave, cacheado);
+            throw new ExpiredJwtException(null, cacheado.claims(), "Token vencido");
+        }
+
+        // Verifica firma y expiración (lanza JwtException si no es válido)
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+
+        Date exp = claims.getExpiration();
+        if (exp != null) {
+            hacerLugarEnCache(ahora);
+            cacheClaims.put(clave, new ClaimsVerificados(claims, exp.getTime()));
+        }
+        return claims;
+    }
+
+    private void hacerLugarEnCache(long ahora) {
+        if (cacheClaims.size() < maxEntradasCache) return;
+
+        // Primero descartamos los vencidos
+        cacheClaims.values().removeIf(c -> c.vencido(ahora));
+
+        // Si sigue lleno, liberamos entradas arbitrarias hasta quedar por debajo del límite
+        Iterator<String> it = cacheClaims.keySet().iterator();
+        while (cacheClaims.size() >= maxEntradasCache && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
         }
     }
 
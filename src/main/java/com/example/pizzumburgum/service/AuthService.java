@@ -105,6 +105,7 @@ public class AuthService {
         Usuario usuarioGuardado = usuarioRepository.save(nuevoUsuario);
 
         String token = jwtService.generarToken(
+                usuarioGuardado.getId(),
                 usuarioGuardado.getEmail(),
                 usuarioGuardado.getRol().name()
         );
@@ -200,6 +201,7 @@ public class AuthService {
                     .orElseThrow(() -> new RegistroException("Usuario no encontrado"));
 
             String token = jwtService.generarToken(
+                    usuario.getId(),
                     usuario.getEmail(),
                     usuario.getRol().name()
             );
@@ -0,0 +1,260 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.service.PasarelaPago.ResultadoPago;
+import com.example.pizzumburgum.service.PasarelaPago.SolicitudPago;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Llamadas a la {@link PasarelaPago} con protección:
+ * - Timeout: si la pasarela no responde a tiempo el resultado es incierto (pudo haber
+ *   cobrado): el pago queda PROCESANDO hasta que lo resuelva la conciliación.
+ * - Bulkhead: como mucho N llamadas en vuelo (cuentan hasta que la pasarela responde,
+ *   aunque el cliente ya haya recibido el timeout); el resto espera poco y se rechaza.
+ *   Un rechazo por saturación es definitivo: esa solicitud nunca salió.
+ * - Circuit breaker: tras varias fallas técnicas seguidas se deja de llamar por un
+ *   rato; luego se deja pasar una llamada de prueba (semiabierto).
+ * Los rechazos de negocio no cuentan como falla.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AutorizadorPagosService {
+
+    private final PasarelaPago pasarelaPago;
+
+    @Value("${pagos.timeout-ms:3000}")
+    private long timeoutMillis;
+
+    @Value("${pagos.bulkhead.max-concurrentes:20}")
+    private int maxConcurrentes;
+
+    @Value("${pagos.bulkhead.espera-ms:200}")
+    private long esperaBulkheadMillis;
+
+    @Value("${pagos.circuito.umbral-fallas:5}")
+    private int umbralFallas;
+
+    @Value("${pagos.circuito.apertura-ms:30000}")
+    private long aperturaMillis;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean hilosVirtuales;
+
+    private enum EstadoCircuito { CERRADO, ABIERTO, SEMIABIERTO }
+
+    private Semaphore bulkhead;
+    private AsyncTaskExecutor executor;
+    private ExecutorService pool;      // null con hilos virtuales
+
+    // Estado del circuito (protegido por this)
+    private EstadoCircuito circuito = EstadoCircuito.CERRADO;
+    private int fallasSeguidas;
+    private long abiertoHasta;
+
+    @PostConstruct
+    void inicializar() {
+        this.bulkhead = new Semaphore(maxConcurrentes);
+        if (hilosVirtuales) {
+            // Un hilo virtual por llamada: el bulkhead sigue acotando la concurrencia
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("pasarela-pago-");
+            virtual.setVirtualThreads(true);
+            this.executor = virtual;
+        } else {
+            // Sin cola: el bulkhead ya acota las llamadas en vuelo. El margen de hilos cubre el
+            // instante entre que una tarea libera su permiso y su hilo vuelve a estar libre
+            AtomicInteger contador = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(maxConcurrentes, maxConcurrentes * 2,
+                    60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+                Thread t = new Thread(r, "pasarela-pago-" + contador.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            this.executor = new TaskExecutorAdapter(pool);
+        }
+    }
+
+    @PreDestroy
+    void detener() {
+        if (pool != null) pool.shutdownNow();
+    }
+
+    public ResultadoPago autorizar(SolicitudPago solicitud) {
+        if (!permitirLlamada()) {
+            return ResultadoPago.rechazado("Pasarela de pagos no disponible, intentá en unos minutos");
+        }
+
+        Envio envio = enviar(() -> pasarelaPago.autorizar(solicitud));
+        if (envio == null) {
+            liberarPrueba();
+            return ResultadoPago.rechazado("Pasarela de pagos saturada, intentá de nuevo");
+        }
+
+        try {
+            ResultadoPago resultado = envio.futuro.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            registrarExito();
+            return resultado;
+        } catch (TimeoutException e) {
+            if (anular(envio)) {
+                // Ningún hilo la tomó a tiempo: la pasarela nunca la recibió
+                liberarPrueba();
+                return ResultadoPago.rechazado("Pasarela de pagos saturada, intentá de nuevo");
+            }
+            envio.futuro.cancel(true);
+            registrarFalla();
+            log.warn("Timeout autorizando el pago del pedido {}", solicitud.pedidoId());
+            return ResultadoPago.incierto("La pasarela de pagos no respondió a tiempo");
+        } catch (ExecutionException e) {
+            // La solicitud pudo llegar a la pasarela antes de fallar
+            registrarFalla();
+            log.warn("Falla autorizando el pago del pedido {}", solicitud.pedidoId(), e);
+            return ResultadoPago.incierto("Error en la pasarela de pagos");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            liberarPrueba();
+            if (anular(envio)) {
+                return ResultadoPago.rechazado("Autorización interrumpida");
+            }
+            envio.futuro.cancel(true);
+            return ResultadoPago.incierto("Autorización interrumpida");
+        }
+    }
+
+    /**
+     * Consulta para conciliar un pago PROCESANDO, con el mismo circuito, bulkhead y
+     * timeout que {@link #autorizar}: una pasarela colgada no retiene al hilo que concilia.
+     * Cualquier falla deja el resultado incierto y se vuelve a consultar más tarde.
+     */
+    public ResultadoPago consultar(SolicitudPago solicitud) {
+        if (!permitirLlamada()) {
+            return ResultadoPago.incierto("Pasarela de pagos no disponible");
+        }
+
+        Envio envio = enviar(() -> pasarelaPago.consultar(solicitud));
+        if (envio == null) {
+            liberarPrueba();
+            return ResultadoPago.incierto("Pasarela de pagos saturada");
+        }
+
+        try {
+            ResultadoPago resultado = envio.futuro.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            registrarExito();
+            return resultado;
+        } catch (TimeoutException e) {
+            if (anular(envio)) {
+                liberarPrueba();
+                return ResultadoPago.incierto("Pasarela de pagos saturada");
+            }
+            envio.futuro.cancel(true);
+            registrarFalla();
+            log.warn("Timeout consultando el pago del pedido {}", solicitud.pedidoId());
+            return ResultadoPago.incierto("La pasarela de pagos no respondió a tiempo");
+        } catch (ExecutionException e) {
+            registrarFalla();
+            log.warn("Falla consultando el pago del pedido {}", solicitud.pedidoId(), e);
+            return ResultadoPago.incierto("Error en la pasarela de pagos");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            liberarPrueba();
+            if (!anular(envio)) envio.futuro.cancel(true);
+            return ResultadoPago.incierto("Consulta interrumpida");
+        }
+    }
+
+    /* ============ Bulkhead ============ */
+
+    /**
+     * Llamada enviada al executor. El permiso del bulkhead lo libera la propia tarea al
+     * terminar la llamada a la pasarela, no el que espera: una llamada colgada sigue
+     * ocupando su lugar aunque el cliente ya haya recibido el timeout.
+     */
+    private static final class Envio {
+        // La toma la tarea al empezar o el que llama al abandonarla, lo que ocurra primero
+        private final AtomicBoolean tomada = new AtomicBoolean();
+        private Future<ResultadoPago> futuro;
+    }
+
+    // null = no salió (bulkhead lleno o sin hilos libres): la pasarela no recibió nada
+    private Envio enviar(Callable<ResultadoPago> llamada) {
+        boolean adquirido;
+        try {
+            adquirido = bulkhead.tryAcquire(esperaBulkheadMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            adquirido = false;
+        }
+        if (!adquirido) return null;
+
+        Envio envio = new Envio();
+        try {
+            envio.futuro = executor.submit(() -> {
+                if (!envio.tomada.compareAndSet(false, true)) return null;   // abandonada antes de empezar
+                try {
+                    return llamada.call();
+                } finally {
+                    bulkhead.release();
+                }
+            });
+            return envio;
+        } catch (TaskRejectedException e) {
+            bulkhead.release();
+            return null;
+        }
+    }
+
+    // true si la tarea todavía no había empezado: ya no va a llamar a la pasarela
+    private boolean anular(Envio envio) {
+        if (!envio.tomada.compareAndSet(false, true)) return false;
+        bulkhead.release();
+        return true;
+    }
+
+    /* ============ Circuit breaker ============ */
+
+    private synchronized boolean permitirLlamada() {
+        if (circuito == EstadoCircuito.CERRADO) return true;
+        if (circuito == EstadoCircuito.ABIERTO && System.currentTimeMillis() >= abiertoHasta) {
+            circuito = EstadoCircuito.SEMIABIERTO;     // una sola llamada de prueba
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void registrarExito() {
+        fallasSeguidas = 0;
+        if (circuito != EstadoCircuito.CERRADO) {
+            log.info("Circuito de la pasarela de pagos cerrado");
+        }
+        circuito = EstadoCircuito.CERRADO;
+    }
+
+    private synchronized void registrarFalla() {
+        fallasSeguidas++;
+        if (circuito == EstadoCircuito.SEMIABIERTO || fallasSeguidas >= umbralFallas) {
+            circuito = EstadoCircuito.ABIERTO;
+            abiertoHasta = System.currentTimeMillis() + aperturaMillis;
+            fallasSeguidas = 0;
+            log.warn("Circuito de la pasarela de pagos abierto por {} ms", aperturaMillis);
+        }
+    }
+
+    // La llamada de prueba no llegó a la pasarela: se habilita otra
+    private synchronized void liberarPrueba() {
+        if (circuito == EstadoCircuito.SEMIABIERTO) {
+            circuito = EstadoCircuito.ABIERTO;
+            abiertoHasta = System.currentTimeMillis();
+        }
+    }
+}
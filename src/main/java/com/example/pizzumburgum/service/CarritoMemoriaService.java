@@ -0,0 +1,603 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.entities.*;
+import com.example.pizzumburgum.repository.CarritoRepositorio;
+import com.example.pizzumburgum.repository.UsuarioRepositorio;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Carritos activos en memoria, particionados (shards) por id de usuario.
+ * - Las operaciones del carrito se aplican en memoria, sin ir a la base de datos.
+ * - Un flusher periódico (write-behind) persiste en lote solo los carritos
+ *   modificados, con los cambios ya coalescidos (diez "+1" = un UPDATE).
+ * - En el checkout, {@link #persistirParaCheckout(Long)} escribe el carrito dentro
+ *   de la transacción del pedido y lo bloquea hasta que esa transacción termina.
+ * - Los cambios aún no persistidos se pierden si el proceso muere sin apagarse
+ *   ordenadamente (como mucho, un intervalo de flush).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CarritoMemoriaService {
+
+    private final CarritoRepositorio carritoRepositorio;
+    private final UsuarioRepositorio usuarioRepositorio;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${carritos.memoria.shards:16}")
+    private int cantidadShards;
+
+    @Value("${carritos.memoria.ttl-ms:1800000}")
+    private long ttlMillis;
+
+    private Shard[] shards;
+    private TransactionTemplate transaccion;
+    private TransactionTemplate transaccionCarga;
+
+    @PostConstruct
+    void inicializar() {
+        this.shards = new Shard[Math.max(1, cantidadShards)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        this.transaccion = new TransactionTemplate(transactionManager);
+        // La carga (y alta del carrito vacío) no depende de la transacción del que llama
+        this.transaccionCarga = new TransactionTemplate(transactionManager);
+        this.transaccionCarga.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /* ============ ACCESO ============ */
+
+    /** Lectura consistente del carrito del usuario (lo carga/crea si no está en memoria). */
+    public <T> T leer(Long usuarioId, Function<CarritoActivo, T> lectura) {
+        while (true) {
+            CarritoActivo carrito = obtener(usuarioId);
+            synchronized (carrito) {
+                if (carrito.desalojado) continue;
+                carrito.ultimoAcceso = System.currentTimeMillis();
+                return lectura.apply(carrito);
+            }
+        }
+    }
+
+    /** Aplica una modificación en memoria y deja el carrito pendiente de flush. */
+    public <T> T modificar(Long usuarioId, Function<CarritoActivo, T> modificacion) {
+        while (true) {
+            CarritoActivo carrito = obtener(usuarioId);
+            synchronized (carrito) {
+                if (carrito.desalojado) continue;
+                if (carrito.enCheckout) {
+                    throw new IllegalArgumentException("El carrito se está procesando en un pedido, intentá de nuevo");
+                }
+                carrito.ultimoAcceso = System.currentTimeMillis();
+                T resultado = modificacion.apply(carrito);
+                if (carrito.version != carrito.versionPersistida) {
+                    shard(usuarioId).pendientes.add(usuarioId);
+                }
+                return resultado;
+            }
+        }
+    }
+
+    private CarritoActivo obtener(Long usuarioId) {
+        return obtener(usuarioId, false);
+    }
+
+    /**
+     * enTransaccionActual: el checkout ya tiene una transacción (y su conexión); en vez de
+     * pedir otra al pool con REQUIRES_NEW, el carrito se carga en ella. En ese caso no se
+     * crea un carrito vacío: si la transacción vuelve atrás, la memoria apuntaría a una
+     * fila que no existe (y sin carrito el checkout falla igual).
+     */
+    private CarritoActivo obtener(Long usuarioId, boolean enTransaccionActual) {
+        if (usuarioId == null) throw new IllegalArgumentException("El usuario es obligatorio");
+        Shard shard = shard(usuarioId);
+        CarritoActivo carrito = shard.carritos.get(usuarioId);
+        if (carrito != null) return carrito;
+
+        // Las cargas se serializan por shard para no crear dos carritos del mismo usuario
+        shard.cargaLock.lock();
+        try {
+            carrito = shard.carritos.get(usuarioId);
+            if (carrito == null) {
+                carrito = enTransaccionActual
+                        ? cargarExistente(usuarioId)
+                        : transaccionCarga.execute(status -> cargar(usuarioId));
+                shard.carritos.put(usuarioId, carrito);
+                if (carrito.version != carrito.versionPersistida) {
+                    shard.pendientes.add(usuarioId);    // se compactaron líneas duplicadas
+                }
+            }
+            return carrito;
+        } finally {
+            shard.cargaLock.unlock();
+        }
+    }
+
+    private CarritoActivo cargar(Long usuarioId) {
+        Carrito carrito = carritoRepositorio.findByUsuarioIdWithItems(usuarioId)
+                .orElseGet(() -> crearCarritoVacio(usuarioId));
+        return aMemoria(usuarioId, carrito);
+    }
+
+    private CarritoActivo cargarExistente(Long usuarioId) {
+        Carrito carrito = carritoRepositorio.findByUsuarioIdWithItems(usuarioId)
+                .orElseThrow(() -> new IllegalArgumentException("El usuario no tiene carrito activo"));
+        return aMemoria(usuarioId, carrito);
+    }
+
+    private CarritoActivo aMemoria(Long usuarioId, Carrito carrito) {
+        CarritoActivo activo = new CarritoActivo(usuarioId, carrito.getId());
+        for (CarritoItem item : carrito.getItems()) {
+            Producto producto = item.getProducto();
+            Creacion creacion = item.getCreacion();
+            activo.lineas.add(new Linea(
+                    item.getId(),
+                    producto != null ? producto.getId() : null,
+                    creacion != null ? creacion.getId() : null,
+                    producto != null ? producto.getNombre() : (creacion != null ? creacion.getNombre() : null),
+                    item.getPrecioUnitarioCentavos(),
+                    item.getCantidad()));
+        }
+        activo.compactar();
+        activo.recalcularTotal();
+        activo.ultimoAcceso = System.currentTimeMillis();
+        return activo;
+    }
+
+    private Carrito crearCarritoVacio(Long usuarioId) {
+        // Solo hace falta la FK: si el usuario no existe, el INSERT la rechaza
+        Carrito nuevo = new Carrito();
+        nuevo.setUsuario(usuarioRepositorio.getReferenceById(usuarioId));
+        nuevo.setItems(new ArrayList<>());
+        nuevo.setTotal(BigDecimal.ZERO);
+        try {
+            return carritoRepositorio.save(nuevo);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Usuario no encontrado: " + usuarioId);
+        }
+    }
+
+    private Shard shard(Long usuarioId) {
+        return shards[Math.floorMod(usuarioId.hashCode(), shards.length)];
+    }
+
+    /* ============ CHECKOUT ============ */
+
+    /**
+     * Debe llamarse dentro de la transacción que crea el pedido: escribe el estado
+     * en memoria en la base de datos y bloquea el carrito (ni flusher ni cambios del
+     * usuario) hasta que la transacción termine. Si confirma, el carrito en memoria
+     * se descarta (el pedido lo vació en la base); si vuelve atrás, se desbloquea
+     * y sigue pendiente de flush.
+     */
+    public void persistirParaCheckout(Long usuarioId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("persistirParaCheckout requiere una transacción activa");
+        }
+
+        CarritoActivo carrito;
+        while (true) {
+            carrito = obtener(usuarioId, true);
+            carrito.flushLock.lock();
+            synchronized (carrito) {
+                if (!carrito.desalojado && !carrito.enCheckout) {
+                    carrito.enCheckout = true;
+                    break;
+                }
+            }
+            carrito.flushLock.unlock();
+            if (carrito.enCheckout) {
+                throw new IllegalArgumentException("Ya hay un pedido en curso para este carrito");
+            }
+        }
+
+        final CarritoActivo bloqueado = carrito;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    synchronized (bloqueado) {
+                        Shard shard = shard(usuarioId);
+                        if (status == STATUS_COMMITTED) {
+                            bloqueado.desalojado = true;
+                            shard.carritos.remove(usuarioId, bloqueado);
+                            shard.pendientes.remove(usuarioId);
+                        } else if (bloqueado.version != bloqueado.versionPersistida) {
+                            // Lo escrito por el checkout se descartó: vuelve a la cola del flusher
+                            shard.pendientes.add(usuarioId);
+                        }
+                        bloqueado.enCheckout = false;
+                    }
+                } finally {
+                    bloqueado.flushLock.unlock();
+                }
+            }
+        });
+
+        Instantanea instantanea;
+        synchronized (carrito) {
+            instantanea = carrito.instantanea();
+        }
+        escribir(List.of(instantanea));
+    }
+
+    /* ============ WRITE-BEHIND ============ */
+
+    @Scheduled(fixedDelayString = "${carritos.flush.intervalo-ms:2000}")
+    public void persistirPendientes() {
+        for (Shard shard : shards) {
+            persistirShard(shard);
+            desalojarInactivos(shard);
+        }
+    }
+
+    @PreDestroy
+    void persistirAlApagar() {
+        persistirPendientes();
+    }
+
+    private void persistirShard(Shard shard) {
+        if (shard.pendientes.isEmpty()) return;
+
+        List<CarritoActivo> bloqueados = new ArrayList<>();
+        List<Instantanea> lote = new ArrayList<>();
+        for (Long usuarioId : List.copyOf(shard.pendientes)) {
+            CarritoActivo carrito = shard.carritos.get(usuarioId);
+            if (carrito == null) {
+                shard.pendientes.remove(usuarioId);
+                continue;
+            }
+            // Si hay un checkout en curso sigue pendiente: si el pedido vuelve atrás,
+            // el próximo flush lo escribe; si confirma, el checkout lo saca de la cola
+            if (!carrito.flushLock.tryLock()) continue;
+            synchronized (carrito) {
+                shard.pendientes.remove(usuarioId);
+                if (carrito.desalojado || carrito.version == carrito.versionPersistida) {
+                    carrito.flushLock.unlock();
+                    continue;
+                }
+                lote.add(carrito.instantanea());
+            }
+            bloqueados.add(carrito);
+        }
+
+        try {
+            try {
+                List<Map<Long, Long>> ids = transaccion.execute(status -> escribir(lote));
+                for (int i = 0; i < lote.size(); i++) {
+                    bloqueados.get(i).confirmarPersistencia(lote.get(i).version(), ids.get(i));
+                }
+            } catch (RuntimeException e) {
+                // Un carrito con problemas no debe frenar al resto del lote
+                log.warn("Fallo el flush en lote de {} carritos, se reintenta de a uno", lote.size(), e);
+                for (int i = 0; i < lote.size(); i++) {
+                    persistirIndividual(shard, bloqueados.get(i), lote.get(i));
+                }
+            }
+        } finally {
+            bloqueados.forEach(c -> c.flushLock.unlock());
+        }
+    }
+
+    private void persistirIndividual(Shard shard, CarritoActivo carrito, Instantanea instantanea) {
+        try {
+            List<Map<Long, Long>> ids = transaccion.execute(status -> escribir(List.of(instantanea)));
+            carrito.confirmarPersistencia(instantanea.version(), ids.get(0));
+        } catch (RuntimeException e) {
+            log.error("No se pudo persistir el carrito del usuario {}", instantanea.usuarioId(), e);
+            shard.pendientes.add(instantanea.usuarioId());
+        }
+    }
+
+    private void desalojarInactivos(Shard shard) {
+        long limite = System.currentTimeMillis() - ttlMillis;
+        for (CarritoActivo carrito : shard.carritos.values()) {
+            synchronized (carrito) {
+                if (carrito.ultimoAcceso < limite && !carrito.enCheckout
+                        && carrito.version == carrito.versionPersistida) {
+                    carrito.desalojado = true;
+                    shard.carritos.remove(carrito.usuarioId, carrito);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sincroniza carrito_items con cada instantánea del lote (altas, cambios de cantidad
+     * y bajas) dentro de la transacción actual: una consulta trae todos los carritos con
+     * sus líneas y un solo flush escribe el lote. Devuelve, por instantánea y en el mismo
+     * orden, los ids reales de las líneas nuevas.
+     */
+    private List<Map<Long, Long>> escribir(List<Instantanea> lote) {
+        List<Long> carritoIds = new ArrayList<>(lote.size());
+        for (Instantanea instantanea : lote) {
+            carritoIds.add(instantanea.carritoId());
+        }
+        Map<Long, Carrito> carritos = new HashMap<>();
+        for (Carrito carrito : carritoRepositorio.findAllWithItemsByIds(carritoIds)) {
+            carritos.put(carrito.getId(), carrito);
+        }
+
+        List<Map<Long, CarritoItem>> nuevosPorCarrito = new ArrayList<>(lote.size());
+        for (Instantanea instantanea : lote) {
+            Carrito carrito = carritos.get(instantanea.carritoId());
+            if (carrito == null) {
+                throw new IllegalStateException("Carrito no encontrado: " + instantanea.carritoId());
+            }
+            nuevosPorCarrito.add(aplicar(carrito, instantanea));
+        }
+        entityManager.flush();
+
+        List<Map<Long, Long>> ids = new ArrayList<>(lote.size());
+        for (Map<Long, CarritoItem> nuevos : nuevosPorCarrito) {
+            Map<Long, Long> reales = new HashMap<>();
+            nuevos.forEach((idAnterior, item) -> reales.put(idAnterior, item.getId()));
+            ids.add(reales);
+        }
+        return ids;
+    }
+
+    // Aplica la instantánea sobre el carrito administrado; devuelve las líneas nuevas por id en memoria
+    private Map<Long, CarritoItem> aplicar(Carrito carrito, Instantanea instantanea) {
+        Map<Long, CarritoItem> existentes = new HashMap<>();
+        for (CarritoItem item : carrito.getItems()) {
+            existentes.put(item.getId(), item);
+        }
+
+        Map<Long, CarritoItem> nuevos = new HashMap<>();
+        for (LineaInstantanea linea : instantanea.lineas()) {
+            CarritoItem item = existentes.remove(linea.id());
+            if (item != null) {
+                if (item.getCantidad() != linea.cantidad()) {
+                    carrito.actualizarCantidad(item, linea.cantidad());
+                }
+                continue;
+            }
+            item = new CarritoItem();
+            if (linea.productoId() != null) {
+                item.setProducto(entityManager.getReference(Producto.class, linea.productoId()));
+            } else {
+                item.setCreacion(entityManager.getReference(Creacion.class, linea.creacionId()));
+            }
+            item.setPrecioUnitario(BigDecimal.valueOf(linea.precioUnitarioCentavos(), 2));
+            item.setCantidad(linea.cantidad());
+            carrito.agregarItem(item);
+            nuevos.put(linea.id(), item);
+        }
+        existentes.values().forEach(carrito::quitarItem);
+        return nuevos;
+    }
+
+    /* ============ MODELO EN MEMORIA ============ */
+
+    private static final class Shard {
+        private final Map<Long, CarritoActivo> carritos = new ConcurrentHashMap<>();
+        private final Set<Long> pendientes = ConcurrentHashMap.newKeySet();
+        private final ReentrantLock cargaLock = new ReentrantLock();
+    }
+
+    /** Una línea por producto/creación y precio congelado: agregar lo mismo suma cantidad. */
+    private record ClaveLinea(Long productoId, Long creacionId, long precioUnitarioCentavos) {}
+
+    /** Copia del estado de un carrito para deshacer un lote que falló a mitad de camino. */
+    public record Respaldo(List<Linea> lineas, Map<Long, Long> idsPersistidos,
+                           long siguienteIdTemporal, long totalCentavos, long version) {}
+
+    private record LineaInstantanea(long id, Long productoId, Long creacionId,
+                                    long precioUnitarioCentavos, int cantidad) {}
+
+    private record Instantanea(Long usuarioId, Long carritoId, long version,
+                               List<LineaInstantanea> lineas) {}
+
+    /**
+     * Línea del carrito en memoria. Las líneas nuevas tienen id temporal negativo
+     * hasta que el flush les asigna el id de carrito_items.
+     */
+    public static final class Linea {
+        private long id;
+        private final Long productoId;
+        private final Long creacionId;
+        private final String nombre;
+        private final long precioUnitarioCentavos;
+        private int cantidad;
+
+        private Linea(long id, Long productoId, Long creacionId, String nombre,
+                      long precioUnitarioCentavos, int cantidad) {
+            this.id = id;
+            this.productoId = productoId;
+            this.creacionId = creacionId;
+            this.nombre = nombre;
+            this.precioUnitarioCentavos = precioUnitarioCentavos;
+            this.cantidad = cantidad;
+        }
+
+        public long getId() { return id; }
+        public Long getProductoId() { return productoId; }
+        public Long getCreacionId() { return creacionId; }
+        public String getNombre() { return nombre; }
+        public long getPrecioUnitarioCentavos() { return precioUnitarioCentavos; }
+        public int getCantidad() { return cantidad; }
+
+        public long getSubtotalCentavos() {
+            return Math.multiplyExact(precioUnitarioCentavos, (long) cantidad);
+        }
+
+        private ClaveLinea clave() {
+            return new ClaveLinea(productoId, creacionId, precioUnitarioCentavos);
+        }
+    }
+
+    /**
+     * Carrito de un usuario en memoria. Todos los accesos pasan por
+     * {@link #leer} / {@link #modificar}, que sincronizan sobre la instancia.
+     */
+    public static final class CarritoActivo {
+        private final Long usuarioId;
+        private final Long carritoId;
+        private final List<Linea> lineas = new ArrayList<>();
+        private final Map<ClaveLinea, Linea> indice = new HashMap<>();
+        private final Map<Long, Long> idsPersistidos = new HashMap<>();   // id temporal -> id real
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private long siguienteIdTemporal = -1L;
+        private long totalCentavos;
+        private long version;
+        private long versionPersistida;
+        private long ultimoAcceso;
+        private boolean enCheckout;
+        private boolean desalojado;
+
+        private CarritoActivo(Long usuarioId, Long carritoId) {
+            this.usuarioId = usuarioId;
+            this.carritoId = carritoId;
+        }
+
+        public Long getCarritoId() { return carritoId; }
+        public long getTotalCentavos() { return totalCentavos; }
+        public List<Linea> getLineas() { return Collections.unmodifiableList(lineas); }
+
+        /** Si ya hay una línea igual (mismo ítem y precio) incrementa su cantidad. */
+        public Linea agregarLinea(Long productoId, Long creacionId, String nombre,
+                                  long precioUnitarioCentavos, int cantidad) {
+            ClaveLinea clave = new ClaveLinea(productoId, creacionId, precioUnitarioCentavos);
+            Linea linea = indice.get(clave);
+            if (linea != null) {
+                linea.cantidad = Math.addExact(linea.cantidad, cantidad);
+            } else {
+                linea = new Linea(siguienteIdTemporal--, productoId, creacionId, nombre,
+                        precioUnitarioCentavos, cantidad);
+                lineas.add(linea);
+                indice.put(clave, linea);
+            }
+            totalCentavos = Math.addExact(totalCentavos,
+                    Math.multiplyExact(precioUnitarioCentavos, (long) cantidad));
+            version++;
+            return linea;
+        }
+
+        public void actualizarCantidad(long lineaId, int nuevaCantidad) {
+            Linea linea = buscarLinea(lineaId)
+                    .orElseThrow(() -> new IllegalArgumentException("Item no encontrado: " + lineaId));
+            long antes = linea.getSubtotalCentavos();
+            linea.cantidad = nuevaCantidad;
+            totalCentavos = Math.addExact(totalCentavos, linea.getSubtotalCentavos() - antes);
+            version++;
+        }
+
+        public void quitarLinea(long lineaId) {
+            buscarLinea(lineaId).ifPresent(linea -> {
+                lineas.remove(linea);
+                indice.remove(linea.clave());
+                totalCentavos = Math.subtractExact(totalCentavos, linea.getSubtotalCentavos());
+                version++;
+            });
+        }
+
+        public void vaciar() {
+            if (lineas.isEmpty()) return;
+            lineas.clear();
+            indice.clear();
+            totalCentavos = 0L;
+            version++;
+        }
+
+        /** Acepta tanto el id temporal que devolvimos antes del flush como el real. */
+        public Optional<Linea> buscarLinea(long lineaId) {
+            long id = idsPersistidos.getOrDefault(lineaId, lineaId);
+            for (Linea linea : lineas) {
+                if (linea.id == id) return Optional.of(linea);
+            }
+            return Optional.empty();
+        }
+
+        public Respaldo respaldar() {
+            List<Linea> copia = new ArrayList<>(lineas.size());
+            for (Linea linea : lineas) {
+                copia.add(new Linea(linea.id, linea.productoId, linea.creacionId, linea.nombre,
+                        linea.precioUnitarioCentavos, linea.cantidad));
+            }
+            return new Respaldo(copia, new HashMap<>(idsPersistidos), siguienteIdTemporal, totalCentavos, version);
+        }
+
+        public void restaurar(Respaldo respaldo) {
+            lineas.clear();
+            indice.clear();
+            for (Linea linea : respaldo.lineas()) {
+                lineas.add(linea);
+                indice.put(linea.clave(), linea);
+            }
+            idsPersistidos.clear();
+            idsPersistidos.putAll(respaldo.idsPersistidos());
+            siguienteIdTemporal = respaldo.siguienteIdTemporal();
+            totalCentavos = respaldo.totalCentavos();
+            version = respaldo.version();
+        }
+
+        /**
+         * Funde líneas duplicadas (carritos guardados antes de indexar por clave).
+         * Los ids descartados quedan como alias de la línea que sobrevive.
+         */
+        private void compactar() {
+            indice.clear();
+            Iterator<Linea> it = lineas.iterator();
+            while (it.hasNext()) {
+                Linea linea = it.next();
+                Linea existente = indice.putIfAbsent(linea.clave(), linea);
+                if (existente != null) {
+                    existente.cantidad = Math.addExact(existente.cantidad, linea.cantidad);
+                    idsPersistidos.put(linea.id, existente.id);
+                    it.remove();
+                    version++;
+                }
+            }
+        }
+
+        private void recalcularTotal() {
+            long suma = 0L;
+            for (Linea linea : lineas) {
+                suma = Math.addExact(suma, linea.getSubtotalCentavos());
+            }
+            totalCentavos = suma;
+        }
+
+        private Instantanea instantanea() {
+            List<LineaInstantanea> copia = new ArrayList<>(lineas.size());
+            for (Linea linea : lineas) {
+                copia.add(new LineaInstantanea(linea.id, linea.productoId, linea.creacionId,
+                        linea.precioUnitarioCentavos, linea.cantidad));
+            }
+            return new Instantanea(usuarioId, carritoId, version, copia);
+        }
+
+        private synchronized void confirmarPersistencia(long versionEscrita, Map<Long, Long> ids) {
+            for (Linea linea : lineas) {
+                Long real = ids.get(linea.id);
+                if (real != null) {
+                    idsPersistidos.put(linea.id, real);
+                    linea.id = real;
+                }
+            }
+            versionPersistida = Math.max(versionPersistida, versionEscrita);
+        }
+    }
+}
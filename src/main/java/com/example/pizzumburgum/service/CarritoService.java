@@ -2,173 +2,186 @@ package com.example.pizzumburgum.service;
 
 import com.example.pizzumburgum.dto.response.CarritoDTO;
 import com.example.pizzumburgum.dto.response.CarritoItemDTO;
+import com.example.pizzumburgum.dto.request.CarritoLoteDTO;
 import com.example.pizzumburgum.entities.*;
-import com.example.pizzumburgum.repository.CarritoRepositorio;
+import com.example.pizzumburgum.enums.TipoOperacionCarrito;
 import com.example.pizzumburgum.repository.CreacionRepositorio;
-import com.example.pizzumburgum.repository.ProductoRepositorio;
-import com.example.pizzumburgum.repository.UsuarioRepositorio;
+import com.example.pizzumburgum.service.CarritoMemoriaService.CarritoActivo;
+import com.example.pizzumburgum.service.CarritoMemoriaService.Linea;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Operaciones del carrito. El estado vive en {@link CarritoMemoriaService}
+ * (en memoria, con persistencia write-behind); acá solo se resuelven precios
+ * vigentes y se arma el DTO de respuesta.
+ */
 @Service
 @RequiredArgsConstructor
 public class CarritoService {
 
-    private final UsuarioRepositorio usuarioRepositorio;
-    private final CarritoRepositorio carritoRepositorio;
-    private final ProductoRepositorio productoRepositorio;
     private final CreacionRepositorio creacionRepositorio;
+    private final CatalogoService catalogoService;
+    private final CarritoMemoriaService carritoMemoriaService;
 
     /**
-     * ############ Helpers ############
+     * ############ Resolución del ítem (una sola búsqueda: entidad + precio vigente) ############
      */
 
-    public Carrito obtenerOCrearCarrito(Long usuarioId) {
-        var usuario = usuarioRepositorio.findById(usuarioId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado: " + usuarioId));
-
-        return carritoRepositorio.findByUsuarioId(usuarioId)
-                .orElseGet(() -> {
-                    Carrito nuevo = new Carrito();
-                    nuevo.setUsuario(usuario);
-                    nuevo.setItems(new ArrayList<>());
-                    nuevo.setTotal(BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
-                    return carritoRepositorio.save(nuevo);
-                });
+    private Producto resolverProducto(Long productoId) {
+        // Catálogo en memoria: no consulta la base de datos
+        // Si querés limitar a BEBIDA/ACOMPAÑAMIENTO, validalo aquí con prod.getCategoria()
+        return catalogoService.buscarPorId(productoId)
+                .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado: " + productoId));
     }
 
-    private void recalcularTotalCarrito(Carrito carrito) {
-        BigDecimal total = carrito.getItems().stream()
-                .map(CarritoItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(2, RoundingMode.HALF_UP);
-        carrito.setTotal(total);
+    private Creacion resolverCreacion(Long creacionId) {
+        // Una consulta sin productos: el precio viene con la composición (JOIN FETCH)
+        // Si querés revalidar reglas pizza/hamburguesa, este es el lugar.
+        return creacionRepositorio.findByIdWithComposicion(creacionId)
+                .orElseThrow(() -> new IllegalArgumentException("Creación no encontrada: " + creacionId));
     }
 
-    /**
-     * ############ Precios vigentes (snapshot en el momento) ############
-     */
-
-    private BigDecimal precioVigenteProducto(Long productoId) {
-        var prod = productoRepositorio.findById(productoId)
-                .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado: " + productoId));
-        // Si querés limitar a BEBIDA/ACOMPAÑAMIENTO, validalo aquí con prod.getCategoria()
-        return prod.getPrecio().setScale(2, RoundingMode.HALF_UP);
+    // Una creación sin productos vigentes (migrada sin ninguno) vale 0: no se puede vender
+    private static long precioDeCreacion(Creacion creacion) {
+        long centavos = precioVigente(creacion.getPrecioTotal());
+        if (centavos <= 0) {
+            throw new IllegalArgumentException("La creación '" + creacion.getNombre()
+                    + "' no tiene productos disponibles y no se puede agregar al carrito");
+        }
+        return centavos;
     }
 
-    private BigDecimal precioVigenteCreacion(Long creacionId) {
-        var creacion = creacionRepositorio.findById(creacionId)
-                .orElseThrow(() -> new IllegalArgumentException("Creación no encontrada: " + creacionId));
-        // Si querés revalidar reglas pizza/hamburguesa, este es el lugar.
-        return creacion.getPrecioTotal().setScale(2, RoundingMode.HALF_UP);
+    private static long precioVigente(BigDecimal precio) {
+        return CarritoItem.aCentavos(precio.setScale(2, RoundingMode.HALF_UP));
     }
 
     /**
      * ############ Operaciones públicas ############
      */
 
-    @Transactional
-    public Carrito agregarProductoSuelto(Long usuarioId, Long productoId, int cantidad) {
+    public CarritoDTO agregarProductoSuelto(Long usuarioId, Long productoId, int cantidad) {
         if (cantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
 
-        Carrito carrito = obtenerOCrearCarrito(usuarioId);
-        BigDecimal unit = precioVigenteProducto(productoId);
-
-        Producto prod = productoRepositorio.findById(productoId)
-                .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado: " + productoId));
-
-        CarritoItem item = new CarritoItem();
-        item.setCarrito(carrito);
-        item.setProducto(prod);
-        item.setPrecioUnitario(unit);   // snapshot
-        item.setCantidad(cantidad);     // recalcula subtotal
+        Producto prod = resolverProducto(productoId);
+        long unit = precioVigente(prod.getPrecio());    // snapshot
 
-        carrito.getItems().add(item);
-        recalcularTotalCarrito(carrito);
-
-        return carritoRepositorio.save(carrito);
+        return carritoMemoriaService.modificar(usuarioId, carrito -> {
+            carrito.agregarLinea(prod.getId(), null, prod.getNombre(), unit, cantidad);
+            return convertirADTO(carrito);
+        });
     }
 
-    @Transactional
-    public Carrito agregarCreacion(Long usuarioId, Long creacionId, int cantidad) {
+    public CarritoDTO agregarCreacion(Long usuarioId, Long creacionId, int cantidad) {
         if (cantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
 
-        Carrito carrito = obtenerOCrearCarrito(usuarioId);
-        BigDecimal unit = precioVigenteCreacion(creacionId);
-
-        Creacion creacion = creacionRepositorio.findById(creacionId)
-                .orElseThrow(() -> new IllegalArgumentException("Creación no encontrada: " + creacionId));
-
-        CarritoItem item = new CarritoItem();
-        item.setCarrito(carrito);
-        item.setCreacion(creacion);
-        item.setPrecioUnitario(unit);   // snapshot
-        item.setCantidad(cantidad);     // recalcula subtotal
+        Creacion creacion = resolverCreacion(creacionId);
+        long unit = precioDeCreacion(creacion);   // snapshot
 
-        carrito.getItems().add(item);
-        recalcularTotalCarrito(carrito);
-
-        return carritoRepositorio.save(carrito);
+        return carritoMemoriaService.modificar(usuarioId, carrito -> {
+            carrito.agregarLinea(null, creacion.getId(), creacion.getNombre(), unit, cantidad);
+            return convertirADTO(carrito);
+        });
     }
 
-    @Transactional
-    public Carrito actualizarCantidad(Long usuarioId, Long carritoItemId, int nuevaCantidad) {
+    public CarritoDTO actualizarCantidad(Long usuarioId, Long carritoItemId, int nuevaCantidad) {
         if (nuevaCantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
 
-        Carrito carrito = carritoRepositorio.findByUsuarioId(usuarioId)
-                .orElseThrow(() -> new IllegalArgumentException("El usuario no tiene carrito activo"));
-
-        var item = carrito.getItems().stream()
-                .filter(ci -> ci.getId().equals(carritoItemId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Item no encontrado: " + carritoItemId));
+        // NO se toca el precioUnitario (snapshot). Solo cambia cantidad → subtotal y delta en el total
+        return carritoMemoriaService.modificar(usuarioId, carrito -> {
+            carrito.actualizarCantidad(carritoItemId, nuevaCantidad);
+            return convertirADTO(carrito);
+        });
+    }
 
-        // NO se toca el precioUnitario (snapshot). Solo cambia cantidad → subtotal
-        item.setCantidad(nuevaCantidad);
+    /**
+     * Aplica varias operaciones en orden sobre el carrito, todas o ninguna.
+     * Los precios se resuelven antes (productos del catálogo, creaciones en una
+     * sola consulta) y el carrito se bloquea una única vez; si una operación falla
+     * se restaura el estado previo y no queda nada pendiente de persistir.
+     */
+    public CarritoDTO aplicarLote(Long usuarioId, List<CarritoLoteDTO.Operacion> operaciones) {
+        if (operaciones == null || operaciones.isEmpty()) {
+            throw new IllegalArgumentException("Debe enviar al menos una operación");
+        }
 
-        recalcularTotalCarrito(carrito);
-        return carritoRepositorio.save(carrito);
+        Set<Long> creacionIds = new HashSet<>();
+        for (CarritoLoteDTO.Operacion op : operaciones) {
+            if (op.getTipo() == TipoOperacionCarrito.AGREGAR_CREACION) {
+                creacionIds.add(op.getIdRequerido(op.getCreacionId(), "creacionId"));
+            }
+        }
+        Map<Long, Creacion> creaciones = creacionIds.isEmpty() ? Map.of()
+                : creacionRepositorio.findAllWithComposicionByIds(creacionIds).stream()
+                        .collect(Collectors.toMap(Creacion::getId, c -> c));
+
+        return carritoMemoriaService.modificar(usuarioId, carrito -> {
+            CarritoMemoriaService.Respaldo respaldo = carrito.respaldar();
+            try {
+                for (CarritoLoteDTO.Operacion op : operaciones) {
+                    aplicarOperacion(carrito, op, creaciones);
+                }
+            } catch (RuntimeException e) {
+                carrito.restaurar(respaldo);
+                throw e;
+            }
+            return convertirADTO(carrito);
+        });
     }
 
-    @Transactional(readOnly = true)
-    public Carrito obtenerCarritoConDetalles(Long usuarioId) {
-        return obtenerOCrearCarrito(usuarioId);
+    private void aplicarOperacion(CarritoActivo carrito, CarritoLoteDTO.Operacion op, Map<Long, Creacion> creaciones) {
+        if (op.getTipo() == null) throw new IllegalArgumentException("El tipo de operación es obligatorio");
+
+        switch (op.getTipo()) {
+            case AGREGAR_PRODUCTO -> {
+                Producto prod = resolverProducto(op.getIdRequerido(op.getProductoId(), "productoId"));
+                carrito.agregarLinea(prod.getId(), null, prod.getNombre(),
+                        precioVigente(prod.getPrecio()), op.getCantidadRequerida());
+            }
+            case AGREGAR_CREACION -> {
+                Creacion creacion = creaciones.get(op.getCreacionId());
+                if (creacion == null) {
+                    throw new IllegalArgumentException("Creación no encontrada: " + op.getCreacionId());
+                }
+                carrito.agregarLinea(null, creacion.getId(), creacion.getNombre(),
+                        precioDeCreacion(creacion), op.getCantidadRequerida());
+            }
+            case ACTUALIZAR_CANTIDAD -> carrito.actualizarCantidad(
+                    op.getIdRequerido(op.getCarritoItemId(), "carritoItemId"), op.getNuevaCantidadRequerida());
+            case ELIMINAR_ITEM -> carrito.quitarLinea(op.getIdRequerido(op.getCarritoItemId(), "carritoItemId"));
+        }
     }
 
-    @Transactional
-    public Carrito eliminarItem(Long usuarioId, Long carritoItemId) {
-        Carrito carrito = carritoRepositorio.findByUsuarioId(usuarioId)
-                .orElseThrow(() -> new IllegalArgumentException("El usuario no tiene carrito activo"));
-
-        carrito.getItems().removeIf(item -> item.getId().equals(carritoItemId));
-        recalcularTotalCarrito(carrito);
+    public CarritoDTO obtenerCarritoConDetalles(Long usuarioId) {
+        return carritoMemoriaService.leer(usuarioId, this::convertirADTO);
+    }
 
-        return carritoRepositorio.save(carrito);
+    public CarritoDTO eliminarItem(Long usuarioId, Long carritoItemId) {
+        return carritoMemoriaService.modificar(usuarioId, carrito -> {
+            carrito.quitarLinea(carritoItemId);
+            return convertirADTO(carrito);
+        });
     }
 
-    @Transactional
     public void vaciarCarrito(Long usuarioId) {
-        Carrito carrito = carritoRepositorio.findByUsuarioId(usuarioId)
-                .orElseThrow(() -> new IllegalArgumentException("El usuario no tiene carrito activo"));
-
-        carrito.getItems().clear();
-        carrito.setTotal(BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
-        carritoRepositorio.save(carrito);
+        carritoMemoriaService.modificar(usuarioId, carrito -> {
+            carrito.vaciar();
+            return null;
+        });
     }
 
-    public CarritoDTO convertirADTO(Carrito carrito) {
+    /** Debe llamarse con el carrito bloqueado (dentro de leer/modificar). */
+    public CarritoDTO convertirADTO(CarritoActivo carrito) {
         CarritoDTO dto = new CarritoDTO();
-        dto.setId(carrito.getId());
-        dto.setTotal(carrito.getTotal());
+        dto.setId(carrito.getCarritoId());
+        dto.setTotal(BigDecimal.valueOf(carrito.getTotalCentavos(), 2));
 
-        List<CarritoItemDTO> itemsDTO = carrito.getItems().stream()
+        List<CarritoItemDTO> itemsDTO = carrito.getLineas().stream()
                 .map(this::convertirItemADTO)
                 .collect(Collectors.toList());
         dto.setItems(itemsDTO);
@@ -176,23 +189,23 @@ public class CarritoService {
         return dto;
     }
 
-    private CarritoItemDTO convertirItemADTO(CarritoItem item) {
+    private CarritoItemDTO convertirItemADTO(Linea linea) {
         CarritoItemDTO dto = new CarritoItemDTO();
-        dto.setId(item.getId());
-        dto.setCantidad(item.getCantidad());
-        dto.setPrecioUnitario(item.getPrecioUnitario());
-        dto.setSubtotal(item.getSubtotal());
-
-        if (item.getProducto() != null) {
-            dto.setProductoId(item.getProducto().getId());
-            dto.setProductoNombre(item.getProducto().getNombre());
+        dto.setId(linea.getId());
+        dto.setCantidad(linea.getCantidad());
+        dto.setPrecioUnitario(BigDecimal.valueOf(linea.getPrecioUnitarioCentavos(), 2));
+        dto.setSubtotal(BigDecimal.valueOf(linea.getSubtotalCentavos(), 2));
+
+        if (linea.getProductoId() != null) {
+            dto.setProductoId(linea.getProductoId());
+            dto.setProductoNombre(linea.getNombre());
         }
 
-        if (item.getCreacion() != null) {
-            dto.setCreacionId(item.getCreacion().getId());
-            dto.setCreacionNombre(item.getCreacion().getNombre());
+        if (linea.getCreacionId() != null) {
+            dto.setCreacionId(linea.getCreacionId());
+            dto.setCreacionNombre(linea.getNombre());
         }
 
         return dto;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.example.pizzumburgum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respuesta pre-serializada del catálogo completo (JSON plano y gzip) con un ETag fuerte.
+ * Solo se vuelve a generar cuando cambia la versión del snapshot de {@link CatalogoService},
+ * es decir, luego de que {@link ProductoService} modifica un producto.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogoPayloadService {
+
+    private final CatalogoService catalogoService;
+    private final ObjectMapper objectMapper;
+
+    // Distingue versiones entre reinicios (la versión del snapshot arranca en 1)
+    private final long arranque = System.currentTimeMillis();
+
+    private volatile Payload payload;
+    private final ReentrantLock candado = new ReentrantLock();
+
+    public record Payload(long version, String etag, byte[] json, byte[] gzip) {
+
+        // Un validador fuerte distinto por content-coding (RFC 9110 §8.8.3)
+        public String etagGzip() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+    }
+
+    public Payload actual() {
+        long version = catalogoService.version();
+        Payload p = payload;
+        if (p != null && p.version() == version) {
+            return p;
+        }
+        return regenerar();
+    }
+
+    /** Comparación débil de If-None-Match (RFC 9110): acepta listas, "*" y prefijo W/. */
+    public static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+        for (String candidato : ifNoneMatch.split(",")) {
+            String c = candidato.trim();
+            if (c.equals("*")) return true;
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Si Accept-Encoding acepta gzip, respetando q-values: "gzip;q=0" lo rechaza y
+     * "*" cubre a gzip cuando no aparece explícito.
+     */
+    public static boolean aceptaGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) return false;
+        Double qGzip = null;
+        Double qComodin = null;
+        for (String parte : acceptEncoding.split(",")) {
+            String[] tokens = parte.split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim().toLowerCase(Locale.ROOT);
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;      // q ilegible: no arriesgamos
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                qGzip = q;
+            } else if (coding.equals("*")) {
+                qComodin = q;
+            }
+        }
+        if (qGzip != null) return qGzip > 0;
+        return qComodin != null && qComodin > 0;
+    }
+
+    private Payload regenerar() {
+        candado.lock();     // no synchronized: el snapshot puede ir a la base (hilos virtuales)
+        try {
+            CatalogoService.Snapshot snapshot = catalogoService.snapshot();
+            Payload p = payload;
+            if (p != null && p.version() == snapshot.version()) {
+                return p;
+            }
+
+            byte[] json = objectMapper.writeValueAsBytes(snapshot.productos());
+            String etag = "\"catalogo-" + arranque + "-" + snapshot.version() + "\"";
+            Payload nuevo = new Payload(snapshot.version(), etag, json, gzip(json));
+            this.payload = nuevo;
+            return nuevo;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el catálogo", e);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    private static byte[] gzip(byte[] datos) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, datos.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(datos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
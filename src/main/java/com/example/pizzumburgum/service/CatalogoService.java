@@ -0,0 +1,149 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.entities.Producto;
+import com.example.pizzumburgum.enums.CategoriaProducto;
+import com.example.pizzumburgum.repository.ProductoRepositorio;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Snapshot inmutable del catálogo de productos en memoria.
+ * - Lecturas (menú, precios del carrito, creaciones) no van a la base de datos.
+ * - Se reconstruye entero y se publica de forma atómica luego de cada alta o
+ *   modificación confirmada en {@link ProductoService}.
+ * - Cada reconstrucción incrementa la versión del catálogo.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogoService {
+
+    private final ProductoRepositorio productoRepositorio;
+
+    private volatile Snapshot snapshot;
+    private final ReentrantLock candado = new ReentrantLock();
+
+    public record Snapshot(
+            long version,
+            List<Producto> productos,
+            Map<Long, Producto> porId,
+            Map<CategoriaProducto, List<Producto>> porCategoria
+    ) {}
+
+    /* ============ LECTURAS ============ */
+
+    public Snapshot snapshot() {
+        Snapshot actual = snapshot;
+        return (actual != null) ? actual : inicializar();
+    }
+
+    public long version() {
+        return snapshot().version();
+    }
+
+    public List<Producto> listarTodos() {
+        return snapshot().productos();
+    }
+
+    public Optional<Producto> buscarPorId(Long id) {
+        if (id == null) return Optional.empty();
+        return Optional.ofNullable(snapshot().porId().get(id));
+    }
+
+    public List<Producto> listarPorCategoria(CategoriaProducto categoria) {
+        return snapshot().porCategoria().getOrDefault(categoria, List.of());
+    }
+
+    /** Igual que findAllById: ignora ids inexistentes y no repite productos. */
+    public List<Producto> buscarTodosPorId(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) return List.of();
+        Map<Long, Producto> porId = snapshot().porId();
+        List<Producto> encontrados = new ArrayList<>(ids.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Producto p = (id != null) ? porId.get(id) : null;
+            if (p != null) encontrados.add(p);
+        }
+        return encontrados;
+    }
+
+    /* ============ INVALIDACIÓN ============ */
+
+    /**
+     * Reconstruye el snapshot cuando la transacción en curso confirma
+     * (o inmediatamente si no hay transacción activa).
+     */
+    public void refrescarTrasCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reconstruir();
+                }
+            });
+        } else {
+            reconstruir();
+        }
+    }
+
+    private Snapshot inicializar() {
+        candado.lock();
+        try {
+            return (snapshot != null) ? snapshot : reconstruir();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    // ReentrantLock y no synchronized: la consulta a la base no fija (pin) un hilo virtual a su carrier
+    public Snapshot reconstruir() {
+        candado.lock();
+        try {
+            return reconstruirBloqueado();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    private Snapshot reconstruirBloqueado() {
+        long version = (snapshot != null) ? snapshot.version() + 1 : 1;
+
+        List<Producto> productos = new ArrayList<>();
+        Map<Long, Producto> porId = new HashMap<>();
+        Map<CategoriaProducto, List<Producto>> porCategoria = new EnumMap<>(CategoriaProducto.class);
+
+        for (Producto original : productoRepositorio.findAll()) {
+            // Copia desacoplada de cualquier EntityManager
+            Producto p = copiar(original);
+            productos.add(p);
+            porId.put(p.getId(), p);
+            if (p.getCategoria() != null) {
+                porCategoria.computeIfAbsent(p.getCategoria(), c -> new ArrayList<>()).add(p);
+            }
+        }
+        porCategoria.replaceAll((c, lista) -> List.copyOf(lista));
+
+        Snapshot nuevo = new Snapshot(
+                version,
+                List.copyOf(productos),
+                Map.copyOf(porId),
+                Collections.unmodifiableMap(porCategoria)
+        );
+        this.snapshot = nuevo;
+        return nuevo;
+    }
+
+    private Producto copiar(Producto original) {
+        Producto p = new Producto();
+        p.setId(original.getId());
+        p.setNombre(original.getNombre());
+        p.setDescripcion(original.getDescripcion());
+        p.setPrecio(original.getPrecio());
+        p.setImagenUrl(original.getImagenUrl());
+        p.setCategoria(original.getCategoria());
+        return p;
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.dto.response.CheckoutEstadoDTO;
+import com.example.pizzumburgum.entities.Pedido;
+import com.example.pizzumburgum.enums.EstadoCheckout;
+import com.example.pizzumburgum.enums.EstadoPedido;
+import com.example.pizzumburgum.enums.EstadoPago;
+import com.example.pizzumburgum.exception.PagoEnVerificacionException;
+import com.example.pizzumburgum.exception.PagoRechazadoException;
+import com.example.pizzumburgum.repository.PedidoRepositorio;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checkout asíncrono con Idempotency-Key.
+ * - El request solo registra la solicitud y la encola; el pedido se crea en un
+ *   pool acotado de workers, así un pico de checkouts no ocupa hilos de Tomcat
+ *   ni más conexiones de las que tiene el pool de la base.
+ * - La misma clave (por usuario) devuelve siempre la misma solicitud. Si el
+ *   registro en memoria se perdió (reinicio), el worker busca primero el pedido
+ *   por clave y la restricción única de pedidos evita el duplicado.
+ * - Con la cola llena se rechaza (503) en lugar de encolar sin límite.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CheckoutAsincronoService {
+
+    private final PedidoService pedidoService;
+    private final PedidoRepositorio pedidoRepositorio;
+
+    @Value("${pedidos.checkout.hilos:8}")
+    private int hilos;
+
+    @Value("${pedidos.checkout.cola:500}")
+    private int capacidadCola;
+
+    @Value("${pedidos.checkout.retencion-ms:3600000}")
+    private long retencionMillis;
+
+    // "usuarioId:clave" -> solicitud
+    private final Map<String, Solicitud> porClave = new ConcurrentHashMap<>();
+    // handle -> solicitud
+    private final Map<String, Solicitud> porId = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void inicializar() {
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                r -> {
+                    Thread t = new Thread(r, "checkout-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Quedaron {} checkouts sin procesar al apagar", executor.getQueue().size());
+        }
+    }
+
+    /** Checkout encolado (o ya existente, si la clave se repite). */
+    public record Encolado(CheckoutEstadoDTO estado, boolean nuevo) {}
+
+    /* ============ ALTA ============ */
+
+    public Encolado encolar(Long usuarioId, String claveIdempotencia, Long tarjetaId,
+                            String observaciones, String direccionEntrega) {
+        if (claveIdempotencia == null || claveIdempotencia.isBlank()) {
+            throw new IllegalArgumentException("El header Idempotency-Key es obligatorio");
+        }
+        if (claveIdempotencia.length() > 100) {
+            throw new IllegalArgumentException("Idempotency-Key no puede exceder 100 caracteres");
+        }
+
+        String huella = tarjetaId + "|" + observaciones + "|" + direccionEntrega;
+        Solicitud candidata = new Solicitud(UUID.randomUUID().toString(), usuarioId,
+                claveIdempotencia, huella, tarjetaId, observaciones, direccionEntrega);
+
+        Solicitud existente = porClave.putIfAbsent(candidata.claveRegistro(), candidata);
+        if (existente != null) {
+            if (!existente.huella.equals(huella)) {
+                throw new IllegalStateException("La Idempotency-Key ya se usó con otro pedido");
+            }
+            return new Encolado(existente.aDTO(), false);
+        }
+
+        porId.put(candidata.id, candidata);
+        try {
+            executor.execute(() -> procesar(candidata));
+        } catch (RejectedExecutionException e) {
+            // No quedó encolada: se libera la clave para que el cliente pueda reintentar
+            porClave.remove(candidata.claveRegistro(), candidata);
+            porId.remove(candidata.id);
+            throw e;
+        }
+        return new Encolado(candidata.aDTO(), true);
+    }
+
+    /* ============ CONSULTA ============ */
+
+    public Optional<CheckoutEstadoDTO> consultar(String id, Long usuarioId, boolean esAdmin) {
+        Solicitud solicitud = porId.get(id);
+        if (solicitud == null || (!esAdmin && !solicitud.usuarioId.equals(usuarioId))) {
+            return Optional.empty();
+        }
+        return Optional.of(solicitud.aDTO());
+    }
+
+    /* ============ WORKER ============ */
+
+    private void procesar(Solicitud solicitud) {
+        solicitud.estado = EstadoCheckout.PROCESANDO;
+        try {
+            // Reintento tras un reinicio: el pedido puede existir aunque el registro no
+            Optional<Pedido> previo = pedidoRepositorio.findByUsuarioIdAndClaveIdempotencia(
+                    solicitud.usuarioId, solicitud.clave);
+            if (previo.isPresent()) {
+                solicitud.completarCon(previo.get());
+                return;
+            }
+            Pedido pedido = pedidoService.crearPedido(solicitud.usuarioId, solicitud.tarjetaId,
+                    solicitud.observaciones, solicitud.direccionEntrega, solicitud.clave);
+            solicitud.completar(pedido.getId());
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia creó el pedido con la misma clave en paralelo
+            Optional<Pedido> ganador = pedidoRepositorio.findByUsuarioIdAndClaveIdempotencia(
+                    solicitud.usuarioId, solicitud.clave);
+            if (ganador.isPresent()) {
+                solicitud.completarCon(ganador.get());
+            } else {
+                solicitud.fallar("No se pudo registrar el pedido");
+                log.error("Checkout {} falló", solicitud.id, e);
+            }
+        } catch (PagoRechazadoException e) {
+            solicitud.pedidoId = e.getPedidoId();
+            solicitud.fallar(e.getMessage());
+        } catch (PagoEnVerificacionException e) {
+            // Terminal para el checkout: reintentar podría cobrar dos veces
+            solicitud.verificar(e.getPedidoId());
+        } catch (IllegalArgumentException e) {
+            solicitud.fallar(e.getMessage());
+        } catch (RuntimeException e) {
+            solicitud.fallar("Error inesperado al procesar el pedido");
+            log.error("Checkout {} falló", solicitud.id, e);
+        }
+    }
+
+    /** Olvida solicitudes terminadas hace más de la retención configurada. */
+    @Scheduled(fixedDelayString = "${pedidos.checkout.limpieza-ms:300000}")
+    public void limpiarTerminadas() {
+        long limite = System.currentTimeMillis() - retencionMillis;
+        porId.values().removeIf(s -> {
+            boolean vencida = s.terminadaEn != 0 && s.terminadaEn < limite;
+            if (vencida) porClave.remove(s.claveRegistro(), s);
+            return vencida;
+        });
+    }
+
+    private static final class Solicitud {
+        private final String id;
+        private final Long usuarioId;
+        private final String clave;
+        private final String huella;
+        private final Long tarjetaId;
+        private final String observaciones;
+        private final String direccionEntrega;
+        private volatile EstadoCheckout estado = EstadoCheckout.EN_COLA;
+        private volatile Long pedidoId;
+        private volatile String error;
+        private volatile long terminadaEn;
+
+        private Solicitud(String id, Long usuarioId, String clave, String huella, Long tarjetaId,
+                          String observaciones, String direccionEntrega) {
+            this.id = id;
+            this.usuarioId = Objects.requireNonNull(usuarioId);
+            this.clave = clave;
+            this.huella = huella;
+            this.tarjetaId = tarjetaId;
+            this.observaciones = observaciones;
+            this.direccionEntrega = direccionEntrega;
+        }
+
+        private String claveRegistro() {
+            return usuarioId + ":" + clave;
+        }
+
+        private void completar(Long pedidoId) {
+            this.pedidoId = pedidoId;
+            this.estado = EstadoCheckout.COMPLETADO;
+            this.terminadaEn = System.currentTimeMillis();
+        }
+
+        private void verificar(Long pedidoId) {
+            this.pedidoId = pedidoId;
+            this.estado = EstadoCheckout.PAGO_EN_VERIFICACION;
+            this.terminadaEn = System.currentTimeMillis();
+        }
+
+        // Pedido existente: si el pago fue rechazado quedó CANCELADO; si la pasarela no
+        // contestó sigue PROCESANDO y se informa igual que cuando lo creamos nosotros
+        private void completarCon(Pedido pedido) {
+            if (pedido.getEstado() == EstadoPedido.CANCELADO) {
+                this.pedidoId = pedido.getId();
+                fallar("Pago rechazado");
+            } else if (pedido.getPago() != null && pedido.getPago().getEstado() == EstadoPago.PROCESANDO) {
+                verificar(pedido.getId());
+            } else {
+                completar(pedido.getId());
+            }
+        }
+
+        private void fallar(String error) {
+            this.error = error;
+            this.estado = EstadoCheckout.FALLIDO;
+            this.terminadaEn = System.currentTimeMillis();
+        }
+
+        private CheckoutEstadoDTO aDTO() {
+            return new CheckoutEstadoDTO(id, estado, pedidoId, error);
+        }
+    }
+}
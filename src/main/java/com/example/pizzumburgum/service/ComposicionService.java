@@ -0,0 +1,89 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.entities.Composicion;
+import com.example.pizzumburgum.entities.Producto;
+import com.example.pizzumburgum.enums.CategoriaCreacion;
+import com.example.pizzumburgum.repository.ComposicionRepositorio;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Almacenamiento direccionado por contenido de las combinaciones de productos.
+ * - La identidad de una composición es el hash de (categoría, ids de producto
+ *   ordenados con repeticiones): el orden en que el usuario eligió no importa.
+ * - obtenerOCrear busca por hash y solo inserta si no existe; si dos usuarios arman
+ *   la misma combinación a la vez, la restricción única decide y el perdedor relee.
+ * - Búsqueda e inserción corren en transacciones propias, así la transacción del que
+ *   llama ve la fila ya confirmada aunque la haya creado otro.
+ */
+@Service
+@RequiredArgsConstructor
+public class ComposicionService {
+
+    private final ComposicionRepositorio composicionRepositorio;
+    private final PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaccionPropia;
+
+    @PostConstruct
+    void inicializar() {
+        this.transaccionPropia = new TransactionTemplate(transactionManager);
+        this.transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /* ============ OBTENER O CREAR ============ */
+
+    /** Devuelve la composición (con productos cargados), creándola si es la primera vez. */
+    public Composicion obtenerOCrear(CategoriaCreacion categoria, List<Producto> productos) {
+        List<Producto> canonicos = new ArrayList<>(productos);
+        canonicos.sort(Comparator.comparing(Producto::getId));
+        String hash = calcularHash(categoria, canonicos);
+
+        Optional<Composicion> existente = buscar(hash);
+        if (existente.isPresent()) {
+            return existente.get();
+        }
+        try {
+            return transaccionPropia.execute(status -> {
+                Composicion nueva = new Composicion();
+                nueva.setHash(hash);
+                nueva.setCategoriaCreacion(categoria);
+                nueva.setProductos(canonicos);
+                nueva.recalcularPrecioTotal();
+                return composicionRepositorio.saveAndFlush(nueva);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Otro la insertó entre la búsqueda y el alta
+            return buscar(hash).orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<Composicion> buscar(String hash) {
+        return transaccionPropia.execute(status -> composicionRepositorio.findByHashWithProductos(hash));
+    }
+
+    private static String calcularHash(CategoriaCreacion categoria, List<Producto> productosOrdenados) {
+        StringBuilder canonico = new StringBuilder(categoria.name()).append(':');
+        for (int i = 0; i < productosOrdenados.size(); i++) {
+            if (i > 0) canonico.append(',');
+            canonico.append(productosOrdenados.get(i).getId());
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonico.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -2,14 +2,16 @@ package com.example.pizzumburgum.service;
 
 import com.example.pizzumburgum.dto.request.CreacionDTO;
 import com.example.pizzumburgum.dto.request.ProductoSimpleDTO;
+import com.example.pizzumburgum.dto.response.PaginaCreacionesDTO;
+import com.example.pizzumburgum.entities.Composicion;
 import com.example.pizzumburgum.entities.Creacion;
 import com.example.pizzumburgum.entities.Producto;
 import com.example.pizzumburgum.entities.Usuario;
 import com.example.pizzumburgum.enums.CategoriaCreacion;
-import com.example.pizzumburgum.enums.CategoriaProducto;
 import com.example.pizzumburgum.exception.RegistroException;
 import com.example.pizzumburgum.repository.*;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,15 +22,25 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class CreacionService {
 
+    private static final int LIMITE_MAXIMO_PAGINA = 200;
+
     private final CreacionRepositorio creacionRepositorio;
+    private final ComposicionRepositorio composicionRepositorio;
     private final UsuarioRepositorio usuarioRepositorio;
-    private final ProductoRepositorio productoRepositorio;
+    private final CatalogoService catalogoService;
+    private final ReglasCreacionService reglasCreacionService;
+    private final ComposicionService composicionService;
 
     public Optional<Creacion> buscarPorId(Long id) {
-        return creacionRepositorio.findById(id);
+        // Se serializa con productos y precio: todo en una consulta
+        return creacionRepositorio.findByIdWithProductos(id);
     }
 
-    @Transactional
+    /**
+     * La combinación de productos se guarda una sola vez (ComposicionService) y la
+     * creación del usuario solo la referencia. No es @Transactional: la composición se
+     * obtiene o crea en su propia transacción antes de guardar la creación.
+     */
     public Creacion crearCreacion(Long usuarioId,
                                   String nombre,
                                   String descripcion,
@@ -40,72 +52,24 @@ public class CreacionService {
             throw new IllegalArgumentException("Debe especificarse la categoría de creación (PIZZA o HAMBURGUESA)");
         }
 
-        Usuario usuario = usuarioRepositorio.findById(usuarioId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + usuarioId));
-
-        List<Producto> productos = productoRepositorio.findAllById(productoIds);
+        List<Producto> productos = catalogoService.buscarTodosPorId(productoIds);
         if (productos.isEmpty()) {
             throw new IllegalArgumentException("Debe incluir al menos un producto");
         }
 
-        // Categorías permitidas según tipo de creación (no hay 'base' en productos)
-        Set<CategoriaProducto> permitidas = (categoriaCreacion == CategoriaCreacion.PIZZA_BASE)
-                ? Set.of(
-                CategoriaProducto.TIPO_MASA,
-                CategoriaProducto.TAMANIO_PIZZA,
-                CategoriaProducto.SALSA_PIZZA,
-                CategoriaProducto.TOPPING_PIZZA,
-                CategoriaProducto.BEBIDA,
-                CategoriaProducto.ACOMPANIAMIENTO
-        )
-                : Set.of(
-                CategoriaProducto.TIPO_PAN,
-                CategoriaProducto.TIPO_CARNE,
-                CategoriaProducto.TIPO_QUESO,
-                CategoriaProducto.SALSA_HAMBURGUESA,
-                CategoriaProducto.TOPPING_HAMBURGUESA,
-                CategoriaProducto.BEBIDA,
-                CategoriaProducto.ACOMPANIAMIENTO
-        );
-
-        // Validar categorías no permitidas
-        for (Producto p : productos) {
-            if (!permitidas.contains(p.getCategoria())) {
-                throw new IllegalArgumentException(
-                        "El producto '" + p.getNombre() + "' tiene una categoría no permitida para " + categoriaCreacion);
-            }
-        }
+        // Categorías permitidas y cantidades mínimas/máximas según el tipo (configurables)
+        reglasCreacionService.validar(categoriaCreacion, productos);
 
-        // Conteo por categoría
-        Map<CategoriaProducto, Long> conteo = productos.stream()
-                .collect(Collectors.groupingBy(Producto::getCategoria, Collectors.counting()));
-
-        // Reglas específicas
-        if (categoriaCreacion == CategoriaCreacion.PIZZA_BASE) {
-            if (conteo.getOrDefault(CategoriaProducto.TIPO_MASA, 0L) != 1)
-                throw new IllegalArgumentException("Debe haber exactamente 1 tipo de masa");
-            if (conteo.getOrDefault(CategoriaProducto.TAMANIO_PIZZA, 0L) != 1)
-                throw new IllegalArgumentException("Debe haber exactamente 1 tamaño de pizza");
-            if (conteo.getOrDefault(CategoriaProducto.TOPPING_PIZZA, 0L) > 5)
-                throw new IllegalArgumentException("Máximo 5 toppings para pizza");
-        } else { // HAMBURGUESA
-            if (conteo.getOrDefault(CategoriaProducto.TIPO_PAN, 0L) != 1)
-                throw new IllegalArgumentException("Debe haber exactamente 1 tipo de pan");
-            if (conteo.getOrDefault(CategoriaProducto.TIPO_CARNE, 0L) > 3)
-                throw new IllegalArgumentException("Máximo 3 tipos de carne");
-            if (conteo.getOrDefault(CategoriaProducto.SALSA_HAMBURGUESA, 0L) > 2)
-                throw new IllegalArgumentException("Máximo 2 salsas para hamburguesa");
-            if (conteo.getOrDefault(CategoriaProducto.TOPPING_HAMBURGUESA, 0L) > 5)
-                throw new IllegalArgumentException("Máximo 5 toppings para hamburguesa");
-        }
+        // Antes de la composición: un usuario inexistente no deja una composición huérfana
+        Usuario usuario = usuarioRepositorio.findById(usuarioId)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + usuarioId));
 
-        if (conteo.getOrDefault(CategoriaProducto.BEBIDA, 0L) > 1)
-            throw new IllegalArgumentException("Máximo una bebida por creación");
+        Composicion composicion = composicionService.obtenerOCrear(categoriaCreacion, productos);
 
         // Construcción y guardado
         Creacion creacion = new Creacion();
         creacion.setUsuario(usuario);
-        creacion.setProductos(productos);
+        creacion.setComposicion(composicion);
         creacion.setCategoriaCreacion(categoriaCreacion);
         creacion.setNombre(nombre != null && !nombre.trim().isEmpty() ? nombre.trim() :
                 (categoriaCreacion == CategoriaCreacion.PIZZA_BASE ? "Pizza personalizada" : "Hamburguesa personalizada"));
@@ -132,14 +96,83 @@ public class CreacionService {
     @Transactional(readOnly = true)
     public List<CreacionDTO> listarCreacionesDeUsuario(Long usuarioId) {
         List<Creacion> creaciones = creacionRepositorio.findByUsuarioIdOrderByIdDesc(usuarioId);
-        return creaciones.stream()
-                .map(this::convertirACreacionDTO)
-                .collect(Collectors.toList());
+        return armarDTOs(usuarioId, creaciones);
+    }
+
+    /**
+     * Listado paginado por cursor (id de la última creación de la página anterior).
+     * Dos consultas por página sin importar cuántas creaciones tenga: las creaciones
+     * (con su composición) y todas las filas composicion_productos.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCreacionesDTO listarCreacionesDeUsuarioPaginadas(Long usuarioId, String cursor, int limite) {
+        int tamanio = Math.max(1, Math.min(limite, LIMITE_MAXIMO_PAGINA));
+        Long antesDe = decodificarCursor(cursor);
+
+        // Pedimos una extra para saber si existe página siguiente
+        List<Creacion> creaciones = creacionRepositorio.findPaginaDeUsuario(
+                usuarioId, antesDe, PageRequest.of(0, tamanio + 1));
+        boolean hayMas = creaciones.size() > tamanio;
+        if (hayMas) {
+            creaciones = creaciones.subList(0, tamanio);
+        }
+
+        String siguiente = hayMas ? String.valueOf(creaciones.get(creaciones.size() - 1).getId()) : null;
+        return new PaginaCreacionesDTO(armarDTOs(usuarioId, creaciones), siguiente);
+    }
+
+    private static Long decodificarCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            return Long.parseLong(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    /*
+     * Arma los DTOs sin tocar las colecciones lazy de cada creación: una sola consulta
+     * trae los pares (composición, producto) de todo el lote (las composiciones repetidas
+     * entre creaciones se leen una vez) y los productos se resuelven contra el catálogo
+     * en memoria. El usuario es el mismo para todas.
+     */
+    private List<CreacionDTO> armarDTOs(Long usuarioId, List<Creacion> creaciones) {
+        if (creaciones.isEmpty()) return List.of();
+
+        Set<Long> composicionIds = new HashSet<>();
+        for (Creacion creacion : creaciones) {
+            if (creacion.getComposicion() != null) composicionIds.add(creacion.getComposicion().getId());
+        }
+        Map<Long, List<ProductoSimpleDTO>> productosPorComposicion = new HashMap<>();
+        if (!composicionIds.isEmpty()) {
+            for (Object[] fila : composicionRepositorio.findProductoIdsByComposicionIds(composicionIds)) {
+                Long composicionId = (Long) fila[0];
+                // Un producto que ya no está en el catálogo no se muestra
+                catalogoService.buscarPorId((Long) fila[1]).ifPresent(p ->
+                        productosPorComposicion.computeIfAbsent(composicionId, k -> new ArrayList<>())
+                                .add(convertirAProductoSimpleDTO(p)));
+            }
+        }
+
+        String nombreUsuario = usuarioRepositorio.findById(usuarioId)
+                .map(u -> u.getNombre() + " " + u.getApellido())
+                .orElse(null);
+
+        List<CreacionDTO> dtos = new ArrayList<>(creaciones.size());
+        for (Creacion creacion : creaciones) {
+            CreacionDTO dto = convertirACreacionDTOBasico(creacion);
+            dto.setNombreUsuario(nombreUsuario);
+            if (creacion.getComposicion() != null) {
+                dto.setProductos(productosPorComposicion.get(creacion.getComposicion().getId()));
+            }
+            dtos.add(dto);
+        }
+        return dtos;
     }
 
     @Transactional
     public CreacionDTO actualizarFavorita(Long creacionId, Long usuarioId, boolean favorita) {
-        Creacion creacion = creacionRepositorio.findById(creacionId)
+        Creacion creacion = creacionRepositorio.findByIdWithProductos(creacionId)
                 .orElseThrow(() -> new RegistroException("Creación no encontrada"));
 
         if (creacion.getUsuario() == null || !creacion.getUsuario().getId().equals(usuarioId)) {
@@ -152,14 +185,7 @@ public class CreacionService {
     }
 
     private CreacionDTO convertirACreacionDTO(Creacion creacion) {
-        CreacionDTO dto = new CreacionDTO();
-        dto.setId(creacion.getId());
-        dto.setNombre(creacion.getNombre());
-        dto.setDescripcion(creacion.getDescripcion());
-        dto.setImagenUrl(creacion.getImagenUrl());
-        dto.setCategoriaCreacion(creacion.getCategoriaCreacion());
-        dto.setPrecioTotal(creacion.getPrecioTotal());
-        dto.setFavorita(creacion.isFavorita());
+        CreacionDTO dto = convertirACreacionDTOBasico(creacion);
 
         if (creacion.getUsuario() != null) {
             dto.setNombreUsuario(creacion.getUsuario().getNombre() + " " + creacion.getUsuario().getApellido());
@@ -176,6 +202,19 @@ public class CreacionService {
         return dto;
     }
 
+    // Solo columnas propias de la creación: no inicializa usuario ni productos
+    private CreacionDTO convertirACreacionDTOBasico(Creacion creacion) {
+        CreacionDTO dto = new CreacionDTO();
+        dto.setId(creacion.getId());
+        dto.setNombre(creacion.getNombre());
+        dto.setDescripcion(creacion.getDescripcion());
+        dto.setImagenUrl(creacion.getImagenUrl());
+        dto.setCategoriaCreacion(creacion.getCategoriaCreacion());
+        dto.setPrecioTotal(creacion.getPrecioTotal());
+        dto.setFavorita(creacion.isFavorita());
+        return dto;
+    }
+
     private ProductoSimpleDTO convertirAProductoSimpleDTO(Producto producto) {
         ProductoSimpleDTO dto = new ProductoSimpleDTO();
         dto.setId(producto.getId());
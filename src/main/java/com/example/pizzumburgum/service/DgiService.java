@@ -1,12 +1,17 @@
 package com.example.pizzumburgum.service;
 
 import com.example.pizzumburgum.dto.dgi.DgiPagoDTO;
+import com.example.pizzumburgum.dto.dgi.DgiResumenDTO;
 import com.example.pizzumburgum.dto.dgi.DgiTicketDTO;
 import com.example.pizzumburgum.dto.dgi.DgiTicketItemDTO;
 import com.example.pizzumburgum.dto.dgi.DgiTicketsResponse;
 import com.example.pizzumburgum.entities.Pedido;
+import com.example.pizzumburgum.entities.VentaDiaria;
 import com.example.pizzumburgum.repository.PedidoRepositorio;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,13 +19,19 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class DgiService {
 
     private final PedidoRepositorio pedidoRepositorio;
+    private final EntityManager entityManager;
+    private final VentasDiariasService ventasDiariasService;
+
+    private static final int LOTE_MAXIMO = 1000;
 
     @Transactional(readOnly = true)
     public DgiTicketsResponse obtenerTicketsPorFecha(LocalDate fecha) {
@@ -38,30 +49,9 @@ public class DgiService {
         List<Pedido> pedidos = pedidoRepositorio.findAllWithItemsAndPagoByIds(ids);
 
         // Mapear a DTO
-        List<DgiTicketDTO> dtos = pedidos.stream().map(p -> {
-            List<DgiTicketItemDTO> items = p.getItems().stream()
-                    .map(it -> new DgiTicketItemDTO(
-                            it.getId(),
-                            it.getCantidad(),
-                            it.getSubtotal(),
-                            it.getProducto() != null ? it.getProducto().getId() : null,
-                            it.getCreacion() != null ? it.getCreacion().getId() : null
-                    ))
-                    .toList();
-
-            DgiPagoDTO pagoDto = (p.getPago() != null)
-                    ? new DgiPagoDTO(p.getPago().getMonto(), p.getPago().getCodigoAutorizacion())
-                    : null;
-
-            return new DgiTicketDTO(
-                    p.getId(),
-                    p.getFechaHora(),
-                    p.getPrecioTotal(),
-                    p.getUsuario() != null ? p.getUsuario().getId() : null,
-                    items,
-                    pagoDto
-            );
-        }).toList();
+        List<DgiTicketDTO> dtos = pedidos.stream()
+                .map(this::convertirATicket)
+                .toList();
 
         BigDecimal totalDelDia = dtos.stream()
                 .map(DgiTicketDTO::total)
@@ -75,4 +65,82 @@ public class DgiService {
                 dtos
         );
     }
-}
\ No newline at end of file
+
+    /** Cantidad de tickets y total del día leídos del ledger diario (sin recorrer pedidos). */
+    @Transactional(readOnly = true)
+    public DgiResumenDTO obtenerResumenPorFecha(LocalDate fecha) {
+        VentaDiaria venta = ventasDiariasService.resumenDelDia(fecha);
+        return new DgiResumenDTO(
+                fecha,
+                venta.getCantidadPedidos().intValue(),
+                venta.getTotalBruto().setScale(2, RoundingMode.HALF_UP)
+        );
+    }
+
+    /**
+     * Modo streaming: recorre los tickets del día en lotes acotados de ids (orden ascendente),
+     * entrega cada lote al consumidor y acumula cantidad y total sobre la marcha.
+     * El contexto de persistencia se limpia entre lotes para que el heap no crezca con el volumen del día.
+     */
+    @Transactional(readOnly = true)
+    public DgiResumenDTO recorrerTicketsPorFecha(LocalDate fecha,
+                                                 int tamanioLote,
+                                                 Consumer<List<DgiTicketDTO>> consumidor) {
+        // día calendario [00:00, 24:00)
+        LocalDateTime start = fecha.atStartOfDay();
+        LocalDateTime end = fecha.plusDays(1).atStartOfDay();
+
+        Pageable lote = PageRequest.of(0, Math.max(1, Math.min(tamanioLote, LOTE_MAXIMO)));
+
+        int cantidad = 0;
+        BigDecimal totalDelDia = BigDecimal.ZERO;
+        long ultimoId = 0L;
+
+        List<Long> ids = pedidoRepositorio.findIdsWithPagoByDateRangeAfter(start, end, ultimoId, lote);
+        while (!ids.isEmpty()) {
+            List<DgiTicketDTO> tickets = pedidoRepositorio.findAllWithItemsAndPagoByIds(ids).stream()
+                    .sorted(Comparator.comparing(Pedido::getId))
+                    .map(this::convertirATicket)
+                    .toList();
+
+            for (DgiTicketDTO t : tickets) {
+                totalDelDia = totalDelDia.add(t.total());
+            }
+            cantidad += tickets.size();
+            consumidor.accept(tickets);
+
+            if (ids.size() < lote.getPageSize()) break;
+
+            ultimoId = ids.get(ids.size() - 1);
+            entityManager.clear();
+            ids = pedidoRepositorio.findIdsWithPagoByDateRangeAfter(start, end, ultimoId, lote);
+        }
+
+        return new DgiResumenDTO(fecha, cantidad, totalDelDia.setScale(2, RoundingMode.HALF_UP));
+    }
+
+    private DgiTicketDTO convertirATicket(Pedido p) {
+        List<DgiTicketItemDTO> items = p.getItems().stream()
+                .map(it -> new DgiTicketItemDTO(
+                        it.getId(),
+                        it.getCantidad(),
+                        it.getSubtotal(),
+                        it.getProducto() != null ? it.getProducto().getId() : null,
+                        it.getCreacion() != null ? it.getCreacion().getId() : null
+                ))
+                .toList();
+
+        DgiPagoDTO pagoDto = (p.getPago() != null)
+                ? new DgiPagoDTO(p.getPago().getMonto(), p.getPago().getCodigoAutorizacion())
+                : null;
+
+        return new DgiTicketDTO(
+                p.getId(),
+                p.getFechaHora(),
+                p.getPrecioTotal(),
+                p.getUsuario() != null ? p.getUsuario().getId() : null,
+                items,
+                pagoDto
+        );
+    }
+}
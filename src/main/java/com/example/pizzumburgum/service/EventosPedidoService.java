@@ -0,0 +1,356 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.dto.response.EventoPedidoDTO;
+import com.example.pizzumburgum.enums.EstadoPedido;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hub en memoria de eventos de pedidos (SSE) para las pantallas de cocina y
+ * para el seguimiento de cada cliente.
+ * - Publicar nunca bloquea: cada suscriptor tiene su propio buffer acotado y un
+ *   pool chico de hilos los vacía hacia el SseEmitter.
+ * - Si un cliente lento llena su buffer se descartan sus eventos más viejos y se
+ *   le envía un evento "resync" para que recargue el listado completo una vez.
+ * - Cada evento lleva un id creciente y los últimos se guardan en un historial:
+ *   al reconectar con Last-Event-ID se reenvía solo lo que el cliente no vio.
+ *   Si el id ya salió del historial (o es de antes de un reinicio) va "resync".
+ *   Cocina repasa el historial global; cada cliente tiene el suyo, así el tráfico
+ *   de los demás no le empuja sus propios eventos fuera del reenvío.
+ * - Los eventos se publican solo después del commit (nunca se anuncia un pedido
+ *   que terminó en rollback).
+ */
+@Slf4j
+@Service
+public class EventosPedidoService {
+
+    @Value("${pedidos.eventos.buffer:256}")
+    private int capacidadBuffer;
+
+    @Value("${pedidos.eventos.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${pedidos.eventos.hilos:4}")
+    private int hilos;
+
+    @Value("${pedidos.eventos.historial:1024}")
+    private int capacidadHistorial;
+
+    @Value("${pedidos.eventos.historial-por-usuario:64}")
+    private int capacidadHistorialUsuario;
+
+    // Clientes con historial propio en memoria; al pasarse se olvida el menos reciente
+    @Value("${pedidos.eventos.historial-usuarios:10000}")
+    private int maxUsuariosConHistorial;
+
+    // Cocina recibe todo; los clientes solo los eventos de sus pedidos
+    private final List<Suscriptor> cocina = new CopyOnWriteArrayList<>();
+    private final Map<Long, List<Suscriptor>> porUsuario = new ConcurrentHashMap<>();
+
+    // Ids basados en el reloj: después de un reinicio siguen creciendo y un
+    // Last-Event-ID viejo cae antes del historial (=> resync) en vez de confundirse
+    private final AtomicLong secuencia = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final ArrayDeque<Publicado> historial = new ArrayDeque<>();
+    private final Object candado = new Object();
+
+    // Historial por cliente (orden de acceso, bajo candado). olvidadoHasta: último id que pudo
+    // perderse al descartar el historial entero de algún cliente (o al reiniciar)
+    private final LinkedHashMap<Long, HistorialUsuario> historialPorUsuario = new LinkedHashMap<>(16, 0.75f, true);
+    private long olvidadoHasta = secuencia.get();
+
+    private ExecutorService envios;
+
+    @PostConstruct
+    void inicializar() {
+        AtomicInteger contador = new AtomicInteger();
+        this.envios = Executors.newFixedThreadPool(hilos, r -> {
+            Thread t = new Thread(r, "eventos-pedido-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void detener() {
+        cocina.forEach(s -> s.emitter.complete());
+        porUsuario.values().forEach(lista -> lista.forEach(s -> s.emitter.complete()));
+        envios.shutdownNow();
+    }
+
+    /* ============ SUSCRIPCIÓN ============ */
+
+    /** Pantallas de cocina. estados vacío o null: todos los eventos. */
+    public SseEmitter suscribir(Set<EstadoPedido> estados, Long ultimoId) {
+        Suscriptor suscriptor = new Suscriptor(new SseEmitter(timeoutMillis), null,
+                (estados == null || estados.isEmpty()) ? null : EnumSet.copyOf(estados),
+                capacidadBuffer);
+        return registrar(suscriptor, ultimoId);
+    }
+
+    /** Seguimiento de un cliente: solo los eventos de sus propios pedidos. */
+    public SseEmitter suscribirUsuario(Long usuarioId, Long ultimoId) {
+        Suscriptor suscriptor = new Suscriptor(new SseEmitter(timeoutMillis), usuarioId, null, capacidadBuffer);
+        return registrar(suscriptor, ultimoId);
+    }
+
+    public int cantidadSuscriptores() {
+        return cocina.size() + porUsuario.values().stream().mapToInt(List::size).sum();
+    }
+
+    private SseEmitter registrar(Suscriptor suscriptor, Long ultimoId) {
+        SseEmitter emitter = suscriptor.emitter;
+        emitter.onCompletion(() -> quitar(suscriptor));
+        emitter.onTimeout(() -> quitar(suscriptor));
+        emitter.onError(e -> quitar(suscriptor));
+
+        // Reenvío y alta bajo el mismo candado que publicar: ni huecos ni duplicados
+        synchronized (candado) {
+            if (ultimoId != null) {
+                reenviar(suscriptor, ultimoId);
+            }
+            if (suscriptor.usuarioId == null) {
+                cocina.add(suscriptor);
+            } else {
+                porUsuario.computeIfAbsent(suscriptor.usuarioId, k -> new CopyOnWriteArrayList<>()).add(suscriptor);
+            }
+        }
+        programarEnvio(suscriptor);
+        return emitter;
+    }
+
+    private void reenviar(Suscriptor suscriptor, long ultimoId) {
+        if (suscriptor.usuarioId != null) {
+            reenviarUsuario(suscriptor, ultimoId);
+            return;
+        }
+        Publicado primero = historial.peekFirst();
+        // Sin historial nada se pudo perder solo si el id es el último emitido
+        boolean hueco = primero == null ? ultimoId != secuencia.get() : ultimoId < primero.id() - 1;
+        if (hueco || ultimoId > secuencia.get()) {
+            suscriptor.marcarDesborde();
+            return;
+        }
+        for (Publicado publicado : historial) {
+            if (publicado.id() > ultimoId && suscriptor.interesa(publicado)) {
+                suscriptor.encolar(publicado);
+            }
+        }
+    }
+
+    private void reenviarUsuario(Suscriptor suscriptor, long ultimoId) {
+        HistorialUsuario propio = historialPorUsuario.get(suscriptor.usuarioId);
+        long perdidoHasta = Math.max(olvidadoHasta, propio == null ? 0 : propio.descartadoHasta);
+        if (ultimoId < perdidoHasta || ultimoId > secuencia.get()) {
+            suscriptor.marcarDesborde();
+            return;
+        }
+        if (propio != null) {
+            for (Publicado publicado : propio.eventos) {
+                if (publicado.id() > ultimoId) {
+                    suscriptor.encolar(publicado);
+                }
+            }
+        }
+    }
+
+    private void quitar(Suscriptor suscriptor) {
+        if (suscriptor.usuarioId == null) {
+            cocina.remove(suscriptor);
+        } else {
+            porUsuario.computeIfPresent(suscriptor.usuarioId, (id, lista) -> {
+                lista.remove(suscriptor);
+                return lista.isEmpty() ? null : lista;
+            });
+        }
+    }
+
+    /* ============ PUBLICACIÓN ============ */
+
+    /** Publica cuando la transacción en curso confirma (o ya, si no hay transacción). */
+    public void publicarTrasCommit(Long usuarioId, EventoPedidoDTO evento) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publicar(usuarioId, evento);
+                }
+            });
+        } else {
+            publicar(usuarioId, evento);
+        }
+    }
+
+    /** usuarioId: dueño del pedido, para el canal de seguimiento del cliente. */
+    public void publicar(Long usuarioId, EventoPedidoDTO evento) {
+        List<Suscriptor> destinatarios = new ArrayList<>();
+        synchronized (candado) {
+            Publicado publicado = new Publicado(secuencia.incrementAndGet(), usuarioId, evento);
+            historial.addLast(publicado);
+            while (historial.size() > capacidadHistorial) {
+                historial.removeFirst();
+            }
+            encolarEn(cocina, publicado, destinatarios);
+            if (usuarioId != null) {
+                guardarEnHistorialDe(usuarioId, publicado);
+                encolarEn(porUsuario.getOrDefault(usuarioId, List.of()), publicado, destinatarios);
+            }
+        }
+        destinatarios.forEach(this::programarEnvio);
+    }
+
+    private void guardarEnHistorialDe(Long usuarioId, Publicado publicado) {
+        HistorialUsuario propio = historialPorUsuario.computeIfAbsent(usuarioId, k -> new HistorialUsuario());
+        propio.agregar(publicado, capacidadHistorialUsuario);
+        if (historialPorUsuario.size() > maxUsuariosConHistorial) {
+            Iterator<HistorialUsuario> masViejo = historialPorUsuario.values().iterator();
+            HistorialUsuario descartado = masViejo.next();
+            masViejo.remove();
+            olvidadoHasta = Math.max(olvidadoHasta, descartado.eventos.peekLast().id());
+        }
+    }
+
+    private void encolarEn(List<Suscriptor> suscriptores, Publicado publicado, List<Suscriptor> destinatarios) {
+        for (Suscriptor suscriptor : suscriptores) {
+            if (suscriptor.interesa(publicado)) {
+                suscriptor.encolar(publicado);
+                destinatarios.add(suscriptor);
+            }
+        }
+    }
+
+    // Mantiene viva la conexión a través de proxies y detecta clientes caídos
+    @Scheduled(fixedDelayString = "${pedidos.eventos.heartbeat-ms:15000}")
+    public void latido() {
+        cocina.forEach(this::latido);
+        porUsuario.values().forEach(lista -> lista.forEach(this::latido));
+    }
+
+    private void latido(Suscriptor suscriptor) {
+        if (suscriptor.encolarLatido()) {
+            programarEnvio(suscriptor);
+        }
+    }
+
+    private void programarEnvio(Suscriptor suscriptor) {
+        if (suscriptor.enviando.compareAndSet(false, true)) {
+            try {
+                envios.execute(() -> vaciar(suscriptor));
+            } catch (RejectedExecutionException e) {
+                suscriptor.enviando.set(false);
+            }
+        }
+    }
+
+    private void vaciar(Suscriptor suscriptor) {
+        try {
+            while (true) {
+                SseEmitter.SseEventBuilder siguiente = suscriptor.siguiente(secuencia.get());
+                if (siguiente == null) {
+                    suscriptor.enviando.set(false);
+                    // Pudo entrar algo entre el último poll y liberar la marca
+                    if (suscriptor.vacio() || !suscriptor.enviando.compareAndSet(false, true)) return;
+                    continue;
+                }
+                suscriptor.emitter.send(siguiente);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado
+            quitar(suscriptor);
+            suscriptor.emitter.completeWithError(e);
+        }
+    }
+
+    /* ============ SUSCRIPTOR ============ */
+
+    private record Publicado(long id, Long usuarioId, EventoPedidoDTO evento) {}
+
+    // Últimos eventos de un cliente; descartadoHasta: id del último que salió por capacidad
+    private static final class HistorialUsuario {
+        private final ArrayDeque<Publicado> eventos = new ArrayDeque<>();
+        private long descartadoHasta;
+
+        private void agregar(Publicado publicado, int capacidad) {
+            eventos.addLast(publicado);
+            while (eventos.size() > Math.max(1, capacidad)) {
+                descartadoHasta = eventos.removeFirst().id();
+            }
+        }
+    }
+
+    private static final class Suscriptor {
+        private final SseEmitter emitter;
+        private final Long usuarioId;               // null = cocina
+        private final Set<EstadoPedido> estados;    // null = todos
+        private final ArrayBlockingQueue<Publicado> buffer;
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private final AtomicBoolean desbordado = new AtomicBoolean();
+        private final AtomicBoolean latidoPendiente = new AtomicBoolean();
+
+        private Suscriptor(SseEmitter emitter, Long usuarioId, Set<EstadoPedido> estados, int capacidad) {
+            this.emitter = emitter;
+            this.usuarioId = usuarioId;
+            this.estados = estados;
+            this.buffer = new ArrayBlockingQueue<>(Math.max(1, capacidad));
+        }
+
+        // Interesa si es del usuario y el pedido entra o sale de alguno de los estados filtrados
+        private boolean interesa(Publicado publicado) {
+            if (usuarioId != null && !usuarioId.equals(publicado.usuarioId())) {
+                return false;
+            }
+            EventoPedidoDTO evento = publicado.evento();
+            return estados == null
+                    || estados.contains(evento.estado())
+                    || (evento.estadoAnterior() != null && estados.contains(evento.estadoAnterior()));
+        }
+
+        private void encolar(Publicado publicado) {
+            while (!buffer.offer(publicado)) {
+                buffer.poll();              // descarta el más viejo
+                desbordado.set(true);
+            }
+        }
+
+        private void marcarDesborde() {
+            desbordado.set(true);
+        }
+
+        private boolean encolarLatido() {
+            return latidoPendiente.compareAndSet(false, true);
+        }
+
+        private boolean vacio() {
+            return buffer.isEmpty() && !desbordado.get() && !latidoPendiente.get();
+        }
+
+        // El resync lleva el último id emitido: tras recargar, el cliente reanuda desde ahí
+        private SseEmitter.SseEventBuilder siguiente(long ultimoEmitido) {
+            if (desbordado.getAndSet(false)) {
+                buffer.clear();
+                return SseEmitter.event().id(String.valueOf(ultimoEmitido)).name("resync").data("{}");
+            }
+            Publicado publicado = buffer.poll();
+            if (publicado != null) {
+                return SseEmitter.event().id(String.valueOf(publicado.id())).name("pedido").data(publicado.evento());
+            }
+            if (latidoPendiente.getAndSet(false)) {
+                return SseEmitter.event().comment("latido");
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.pizzumburgum.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Pasarela de autorización de pagos. La implementación se elige con
+ * pagos.pasarela; se invoca siempre a través de {@link AutorizadorPagosService},
+ * fuera de cualquier transacción de base de datos.
+ */
+public interface PasarelaPago {
+
+    record SolicitudPago(Long pedidoId, Long tarjetaId, BigDecimal monto) {}
+
+    /**
+     * incierto: no se sabe si la pasarela cobró (timeout, falla de transporte). El pago
+     * queda PROCESANDO hasta que la conciliación obtenga el resultado con {@link #consultar}.
+     */
+    record ResultadoPago(boolean aprobado, String codigoAutorizacion, String motivo, boolean incierto) {
+
+        public static ResultadoPago aprobado(String codigoAutorizacion) {
+            return new ResultadoPago(true, codigoAutorizacion, null, false);
+        }
+
+        public static ResultadoPago rechazado(String motivo) {
+            return new ResultadoPago(false, null, motivo, false);
+        }
+
+        public static ResultadoPago incierto(String motivo) {
+            return new ResultadoPago(false, null, motivo, true);
+        }
+    }
+
+    /**
+     * Autoriza el cobro. Un rechazo (fondos, tarjeta) se devuelve como resultado;
+     * una excepción indica una falla técnica y cuenta para el circuit breaker.
+     */
+    ResultadoPago autorizar(SolicitudPago solicitud);
+
+    /**
+     * Estado de un cobro ya intentado (por id de pedido), para conciliar los pagos que
+     * quedaron PROCESANDO. Devuelve incierto si la pasarela todavía no lo sabe o no
+     * ofrece consulta.
+     */
+    default ResultadoPago consultar(SolicitudPago solicitud) {
+        return ResultadoPago.incierto("La pasarela no permite consultar cobros");
+    }
+}
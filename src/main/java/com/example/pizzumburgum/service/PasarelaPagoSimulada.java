@@ -0,0 +1,75 @@
+package com.example.pizzumburgum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Pasarela local para desarrollo y pruebas de carga: latencia y tasas de
+ * falla/rechazo configurables (pagos.simulador.*).
+ */
+@Service
+@ConditionalOnProperty(name = "pagos.pasarela", havingValue = "simulada", matchIfMissing = true)
+public class PasarelaPagoSimulada implements PasarelaPago {
+
+    @Value("${pagos.simulador.latencia-ms:150}")
+    private long latenciaMillis;
+
+    @Value("${pagos.simulador.variacion-ms:100}")
+    private long variacionMillis;
+
+    // Fallas técnicas (excepción): cuentan para el circuit breaker
+    @Value("${pagos.simulador.tasa-falla:0.0}")
+    private double tasaFalla;
+
+    // Rechazos de negocio (fondos insuficientes)
+    @Value("${pagos.simulador.tasa-rechazo:0.0}")
+    private double tasaRechazo;
+
+    private static final int MAX_REGISTRADOS = 10_000;
+
+    // Resultados ya decididos por pedido (los más recientes), para responder consultar()
+    private final Map<Long, ResultadoPago> registrados = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ResultadoPago> mayor) {
+            return size() > MAX_REGISTRADOS;
+        }
+    };
+
+    @Override
+    public ResultadoPago autorizar(SolicitudPago solicitud) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        try {
+            long variacion = variacionMillis > 0 ? rnd.nextLong(variacionMillis + 1) : 0L;
+            Thread.sleep(latenciaMillis + variacion);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Autorización interrumpida", e);
+        }
+
+        if (rnd.nextDouble() < tasaFalla) {
+            throw new IllegalStateException("Falla simulada de la pasarela de pagos");
+        }
+        ResultadoPago resultado = rnd.nextDouble() < tasaRechazo
+                ? ResultadoPago.rechazado("Fondos insuficientes")
+                : ResultadoPago.aprobado("SIM-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+        synchronized (registrados) {
+            registrados.put(solicitud.pedidoId(), resultado);
+        }
+        return resultado;
+    }
+
+    // Sin registro: la autorización se interrumpió o falló antes de decidir, no hubo cobro
+    @Override
+    public ResultadoPago consultar(SolicitudPago solicitud) {
+        synchronized (registrados) {
+            ResultadoPago resultado = registrados.get(solicitud.pedidoId());
+            return resultado != null ? resultado : ResultadoPago.rechazado("La pasarela no registró el cobro");
+        }
+    }
+}
@@ -2,40 +2,159 @@ package com.example.pizzumburgum.service;
 
 import com.example.pizzumburgum.dto.request.PedidoItemDTO;
 import com.example.pizzumburgum.dto.request.PedidoDTO;
+import com.example.pizzumburgum.dto.response.EventoPedidoDTO;
+import com.example.pizzumburgum.dto.response.PaginaPedidosDTO;
 import com.example.pizzumburgum.entities.*;
 import com.example.pizzumburgum.enums.EstadoPago;
 import com.example.pizzumburgum.enums.EstadoPedido;
+import com.example.pizzumburgum.exception.ConflictoEstadoException;
+import com.example.pizzumburgum.exception.PagoEnVerificacionException;
+import com.example.pizzumburgum.exception.PagoRechazadoException;
 import com.example.pizzumburgum.exception.RegistroException;
 import com.example.pizzumburgum.repository.*;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PedidoService {
 
     private final UsuarioRepositorio usuarioRepositorio;
     private final CarritoRepositorio carritoRepositorio;
+    private final CarritoMemoriaService carritoMemoriaService;
     private final PedidoRepositorio pedidoRepositorio;
     private final TarjetaRepositorio tarjetaRepositorio;
     private final PagoRepositorio pagoRepositorio;
+    private final EntityManager entityManager;
+    private final VentasDiariasService ventasDiariasService;
+    private final AutorizadorPagosService autorizadorPagosService;
+    private final TransactionTemplate transactionTemplate;
+    private final EventosPedidoService eventosPedidoService;
+    private final TendenciasService tendenciasService;
+
+    private static final int LIMITE_MAXIMO_PAGINA = 500;
+    private static final int LOTE_CONCILIACION = 100;
+
+    // Un pago PROCESANDO más viejo que esto ya no tiene una autorización en vuelo
+    @Value("${pagos.conciliacion.antiguedad-ms:30000}")
+    private long antiguedadConciliacionMillis;
 
-    @Transactional
     public Pedido crearPedido(Long usuarioId, Long tarjetaId, String nota, String direccionEntrega) {
+        return crearPedido(usuarioId, tarjetaId, nota, direccionEntrega, null);
+    }
+
+    /**
+     * Checkout en tres pasos, para no retener una conexión mientras responde la pasarela:
+     * 1) transacción: pedido + items + pago PROCESANDO, carrito vaciado
+     * 2) autorización en la pasarela, sin transacción
+     * 3) transacción: pago APROBADO (y ledger) o RECHAZADO (pedido CANCELADO y
+     *    los items vuelven al carrito)
+     * Si la pasarela no dio un resultado seguro (timeout, falla de transporte) no hay
+     * paso 3: el pago queda PROCESANDO y lo resuelve {@link #conciliarPagosEnProceso()}.
+     *
+     * claveIdempotencia: Idempotency-Key del checkout asíncrono (única por usuario)
+     */
+    public Pedido crearPedido(Long usuarioId, Long tarjetaId, String nota, String direccionEntrega,
+                              String claveIdempotencia) {
+        Pedido pendiente = transactionTemplate.execute(status ->
+                registrarPedidoPendiente(usuarioId, tarjetaId, nota, direccionEntrega, claveIdempotencia));
+
+        PasarelaPago.ResultadoPago resultado = autorizadorPagosService.autorizar(
+                new PasarelaPago.SolicitudPago(pendiente.getId(), tarjetaId, pendiente.getPrecioTotal()));
+
+        if (resultado.incierto()) {
+            // Pudo haber cobrado: ni se cancela ni se devuelve el carrito (un reintento cobraría dos veces)
+            log.warn("Pago del pedido {} sin resultado seguro ({}), queda para conciliar",
+                    pendiente.getId(), resultado.motivo());
+            throw new PagoEnVerificacionException(pendiente.getId(),
+                    "No pudimos confirmar el pago; el pedido queda en verificación");
+        }
+
+        Pedido pedido = aplicarResultadoPago(usuarioId, pendiente.getId(), resultado);
+        if (!resultado.aprobado()) {
+            throw new PagoRechazadoException(pedido.getId(), "Pago rechazado: " + resultado.motivo());
+        }
+        return pedido;
+    }
+
+    /** Paso 3 del checkout (también lo usa la conciliación). */
+    private Pedido aplicarResultadoPago(Long usuarioId, Long pedidoId, PasarelaPago.ResultadoPago resultado) {
+        List<LineaDevuelta> devueltas = new ArrayList<>();
+        Pedido pedido = transactionTemplate.execute(status ->
+                registrarResultadoPago(pedidoId, resultado, devueltas));
+
+        if (!resultado.aprobado()) {
+            devolverAlCarrito(usuarioId, devueltas);
+            return pedido;
+        }
+        if (pedido.getEstado() == EstadoPedido.CANCELADO) {
+            return pedido;      // cobrado tras cancelarse: ni ranking ni aviso a cocina
+        }
+
+        // Ya confirmado: ranking de lo más vendido y aviso a las pantallas de cocina
+        tendenciasService.registrarPedido(pedido);
+        eventosPedidoService.publicar(usuarioId, new EventoPedidoDTO("CREADO", pedido.getId(), pedido.getEstado(), null,
+                pedido.getFechaHora(), pedido.getPrecioTotal(), pedido.getItems().size()));
+        return pedido;
+    }
+
+    /**
+     * Resuelve los pagos que quedaron PROCESANDO: por un resultado incierto de la pasarela
+     * o por una caída entre los pasos 1 y 3 del checkout. Se consulta a la pasarela y se
+     * aplica el resultado como en el checkout; si sigue sin saberse, se reintenta luego.
+     */
+    @Scheduled(fixedDelayString = "${pagos.conciliacion.intervalo-ms:60000}")
+    public void conciliarPagosEnProceso() {
+        LocalDateTime antesDe = LocalDateTime.now().minus(Duration.ofMillis(antiguedadConciliacionMillis));
+        List<Object[]> filas = pagoRepositorio.findSolicitudesByEstadoAntesDe(
+                EstadoPago.PROCESANDO, antesDe, PageRequest.of(0, LOTE_CONCILIACION));
+
+        for (Object[] fila : filas) {
+            Long pedidoId = (Long) fila[0];
+            Long usuarioId = (Long) fila[1];
+            PasarelaPago.ResultadoPago resultado = autorizadorPagosService.consultar(
+                    new PasarelaPago.SolicitudPago(pedidoId, (Long) fila[2], (BigDecimal) fila[3]));
+            if (resultado.incierto()) continue;
+            try {
+                aplicarResultadoPago(usuarioId, pedidoId, resultado);
+                log.info("Pago del pedido {} conciliado: {}", pedidoId,
+                        resultado.aprobado() ? "aprobado" : "rechazado (" + resultado.motivo() + ")");
+            } catch (RuntimeException e) {
+                log.error("No se pudo conciliar el pago del pedido {}", pedidoId, e);
+            }
+        }
+    }
+
+    private Pedido registrarPedidoPendiente(Long usuarioId, Long tarjetaId, String nota, String direccionEntrega,
+                                            String claveIdempotencia) {
         // Usuario
         Usuario usuario = usuarioRepositorio.findById(usuarioId)
                 .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado: " + usuarioId));
 
-        // Carrito
+        // Carrito: primero se vuelcan (y bloquean) los cambios que están en memoria
+        carritoMemoriaService.persistirParaCheckout(usuarioId);
         Carrito carrito = carritoRepositorio.findByUsuarioId(usuarioId)
                 .orElseThrow(() -> new IllegalArgumentException("El usuario no tiene carrito activo"));
         if (carrito.getItems() == null || carrito.getItems().isEmpty()) {
@@ -49,28 +168,20 @@ public class PedidoService {
             throw new IllegalArgumentException("La tarjeta no pertenece al usuario");
         }
 
-        // Total
-        BigDecimal total = carrito.getItems().stream()
-                .map(CarritoItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(2, RoundingMode.HALF_UP);
-        if (total.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("El total del pedido debe ser mayor a 0");
-        }
-
-        // Código de autorización simulado
-        String codigoAutorizacion = "AUTH-LOCAL";
-
         // Construir Pedido en PENDIENTE
         Pedido pedido = new Pedido();
         pedido.setUsuario(usuario);
         pedido.setEstado(EstadoPedido.PENDIENTE);
         pedido.setObservaciones(nota);
         pedido.setDireccionEntrega(direccionEntrega);
-        pedido.setPrecioTotal(total);
+        pedido.setClaveIdempotencia(claveIdempotencia);
 
-        // Items snapshot
+        // Items snapshot; el total se suma de los mismos subtotales (en centavos) que se
+        // congelan en el pedido, no del total incremental del carrito
+        long totalCentavos = 0;
         for (CarritoItem ci : carrito.getItems()) {
+            totalCentavos += CarritoItem.aCentavos(ci.getSubtotal());
+
             PedidoItem pi = new PedidoItem();
             pi.setPedido(pedido);
             pi.setCantidad(ci.getCantidad());
@@ -83,27 +194,103 @@ public class PedidoService {
             pedido.getItems().add(pi);
         }
 
+        BigDecimal total = BigDecimal.valueOf(totalCentavos, 2);
+        if (total.signum() <= 0) {
+            throw new IllegalArgumentException("El total del pedido debe ser mayor a 0");
+        }
+        pedido.setPrecioTotal(total);
 
-        // Registrar pago
+        // Registrar pago: queda PROCESANDO hasta que responda la pasarela
         Pago pago = new Pago();
         pago.setTarjeta(tarjeta);
         pago.setMonto(total);
-        pago.setCodigoAutorizacion(codigoAutorizacion);
-        pago.setEstado(EstadoPago.APROBADO);
+        pago.setEstado(EstadoPago.PROCESANDO);
 
         pedido.setPago(pago);
 
         // Guardar pedido (cascade guarda items y pago)
         pedido = pedidoRepositorio.save(pedido);
+        ventasDiariasService.registrarRecibido(pedido);
 
         // Vaciar carrito
-        carrito.getItems().clear();
-        carrito.setTotal(new BigDecimal("0.00"));
+        carrito.vaciar();
         carritoRepositorio.save(carrito);
 
         return pedido;
     }
 
+    private Pedido registrarResultadoPago(Long pedidoId, PasarelaPago.ResultadoPago resultado,
+                                          List<LineaDevuelta> devueltas) {
+        // El rechazo cancela por la máquina de estados, con el mismo UPDATE condicional que los admins
+        boolean cancelado = false;
+        if (!resultado.aprobado()) {
+            EstadoPedido actual = pedidoRepositorio.findEstadoById(pedidoId)
+                    .orElseThrow(() -> new RegistroException("Pedido no encontrado"));
+            if (actual.puedePasarA(EstadoPedido.CANCELADO)) {
+                if (pedidoRepositorio.actualizarEstado(pedidoId, actual, EstadoPedido.CANCELADO, null) == 0) {
+                    throw new ConflictoEstadoException("El pedido " + pedidoId + " cambió mientras se registraba el pago");
+                }
+                cancelado = true;
+            } else if (actual != EstadoPedido.CANCELADO) {
+                log.error("Pago rechazado para el pedido {} en estado {}: no se puede cancelar", pedidoId, actual);
+            }
+        }
+
+        Pedido pedido = pedidoRepositorio.findAllWithItemsAndPagoByIds(List.of(pedidoId)).get(0);
+        Pago pago = pedido.getPago();
+
+        if (resultado.aprobado()) {
+            pago.setEstado(EstadoPago.APROBADO);
+            pago.setCodigoAutorizacion(resultado.codigoAutorizacion());
+            if (pedido.getEstado() == EstadoPedido.CANCELADO) {
+                // Cobrado pero ya cancelado: no es una venta, queda para devolver el dinero
+                log.error("Pago aprobado para el pedido cancelado {} (autorización {}): requiere devolución",
+                        pedidoId, resultado.codigoAutorizacion());
+            } else {
+                // Ledger diario: solo cuentan los pedidos cobrados
+                ventasDiariasService.registrarPedido(pedido);
+            }
+        } else {
+            pago.setEstado(EstadoPago.RECHAZADO);
+            // Los items vuelven al carrito solo si este rechazo fue el que canceló el pedido
+            if (cancelado) {
+                for (PedidoItem item : pedido.getItems()) {
+                    long subtotal = CarritoItem.aCentavos(item.getSubtotal());
+                    int cantidad = item.getCantidad();
+                    Producto producto = item.getProducto();
+                    Creacion creacion = item.getCreacion();
+                    devueltas.add(new LineaDevuelta(
+                            producto != null ? producto.getId() : null,
+                            creacion != null ? creacion.getId() : null,
+                            producto != null ? producto.getNombre() : creacion.getNombre(),
+                            subtotal / cantidad,
+                            cantidad));
+                }
+            }
+        }
+        return pedidoRepositorio.save(pedido);
+    }
+
+    // Items de un pedido rechazado que vuelven al carrito, con el mismo precio congelado
+    private record LineaDevuelta(Long productoId, Long creacionId, String nombre,
+                                 long precioUnitarioCentavos, int cantidad) {}
+
+    private void devolverAlCarrito(Long usuarioId, List<LineaDevuelta> devueltas) {
+        if (devueltas.isEmpty()) return;
+        try {
+            carritoMemoriaService.modificar(usuarioId, carrito -> {
+                for (LineaDevuelta linea : devueltas) {
+                    carrito.agregarLinea(linea.productoId(), linea.creacionId(), linea.nombre(),
+                            linea.precioUnitarioCentavos(), linea.cantidad());
+                }
+                return null;
+            });
+        } catch (IllegalArgumentException e) {
+            // El pedido ya quedó cancelado; no restaurar el carrito no es motivo para fallar
+            log.warn("No se pudo devolver al carrito los items del usuario {}: {}", usuarioId, e.getMessage());
+        }
+    }
+
     @Transactional
     public Pedido editarPedido(Long usuarioId, Long pedidoId, String nuevaNota, String nuevaDireccion) {
         Pedido pedido = pedidoRepositorio.findById(pedidoId)
@@ -112,7 +299,7 @@ public class PedidoService {
         if (!pedido.getUsuario().getId().equals(usuarioId)) {
             throw new IllegalArgumentException("El pedido no pertenece al usuario");
         }
-        if (pedido.getEstado() == EstadoPedido.ENTREGADO || pedido.getEstado() == EstadoPedido.EN_CAMINO || pedido.getEstado() == EstadoPedido.PREPARACION) {
+        if (!pedido.getEstado().esEditable()) {
             throw new IllegalStateException("El pedido no es editable en estado " + pedido.getEstado());
         }
 
@@ -126,7 +313,9 @@ public class PedidoService {
 
     @Transactional(readOnly = true)
     public List<PedidoDTO> listarPedidosPorFecha(LocalDate fecha) {
-        List<Pedido> pedidos = pedidoRepositorio.findByFecha(fecha);
+        // día calendario [00:00, 24:00)
+        List<Pedido> pedidos = cargarConDetalle(pedidoRepositorio.findIdsByFechaRange(
+                fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay()));
         return pedidos.stream()
                 .map(this::convertirAPedidoDTO)
                 .collect(Collectors.toList());
@@ -134,10 +323,11 @@ public class PedidoService {
 
     @Transactional(readOnly = true)
     public List<PedidoDTO> listarPedidosPorRangoFechas(LocalDate fechaInicio, LocalDate fechaFin) {
+        // [fechaInicio 00:00, fechaFin + 1 día 00:00)
         LocalDateTime inicio = fechaInicio.atStartOfDay();
-        LocalDateTime fin = fechaFin.atTime(LocalTime.MAX);
+        LocalDateTime fin = fechaFin.plusDays(1).atStartOfDay();
 
-        List<Pedido> pedidos = pedidoRepositorio.findByFechaRange(inicio, fin);
+        List<Pedido> pedidos = cargarConDetalle(pedidoRepositorio.findIdsByFechaRange(inicio, fin));
         return pedidos.stream()
                 .map(this::convertirAPedidoDTO)
                 .collect(Collectors.toList());
@@ -145,12 +335,70 @@ public class PedidoService {
 
     @Transactional(readOnly = true)
     public List<PedidoDTO> listarTodosPedidos() {
-        List<Pedido> pedidos = pedidoRepositorio.findAllByOrderByFechaHoraDesc();
+        List<Pedido> pedidos = cargarConDetalle(pedidoRepositorio.findAllIdsOrderByFechaHoraDesc());
         return pedidos.stream()
                 .map(this::convertirAPedidoDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Página de pedidos (más recientes primero) con paginación por cursor sobre (fechaHora, id).
+     * El cursor es opaco para el cliente: se obtiene de la página anterior.
+     */
+    @Transactional(readOnly = true)
+    public PaginaPedidosDTO listarPedidosPaginados(String cursor, int limite) {
+        int tamanio = Math.max(1, Math.min(limite, LIMITE_MAXIMO_PAGINA));
+        // Pedimos uno extra para saber si existe página siguiente
+        Pageable pageable = PageRequest.of(0, tamanio + 1);
+
+        List<Long> ids;
+        if (cursor == null || cursor.isBlank()) {
+            ids = pedidoRepositorio.findIdsPrimeraPagina(pageable);
+        } else {
+            CursorPedido c = CursorPedido.decodificar(cursor);
+            ids = pedidoRepositorio.findIdsAntesDe(c.fechaHora(), c.id(), pageable);
+        }
+
+        boolean hayMas = ids.size() > tamanio;
+        List<Pedido> pedidos = cargarConDetalle(hayMas ? ids.subList(0, tamanio) : ids);
+
+        List<PedidoDTO> dtos = pedidos.stream()
+                .map(this::convertirAPedidoDTO)
+                .collect(Collectors.toList());
+
+        String siguiente = null;
+        if (hayMas && !pedidos.isEmpty()) {
+            Pedido ultimo = pedidos.get(pedidos.size() - 1);
+            siguiente = new CursorPedido(ultimo.getFechaHora(), ultimo.getId()).codificar();
+        }
+        return new PaginaPedidosDTO(dtos, siguiente);
+    }
+
+    /**
+     * Recorre todo el historial de pedidos en lotes por cursor, entregando cada lote ya
+     * convertido a DTO. El contexto de persistencia se limpia entre lotes, así que la
+     * memoria usada no depende del tamaño del historial.
+     */
+    @Transactional(readOnly = true)
+    public void recorrerTodosLosPedidos(int tamanioLote, Consumer<List<PedidoDTO>> consumidor) {
+        int tamanio = Math.max(1, Math.min(tamanioLote, LIMITE_MAXIMO_PAGINA));
+        Pageable pageable = PageRequest.of(0, tamanio);
+
+        List<Long> ids = pedidoRepositorio.findIdsPrimeraPagina(pageable);
+        while (!ids.isEmpty()) {
+            List<Pedido> pedidos = cargarConDetalle(ids);
+            consumidor.accept(pedidos.stream()
+                    .map(this::convertirAPedidoDTO)
+                    .collect(Collectors.toList()));
+
+            if (ids.size() < tamanio || pedidos.isEmpty()) break;
+
+            Pedido ultimo = pedidos.get(pedidos.size() - 1);
+            entityManager.clear();
+            ids = pedidoRepositorio.findIdsAntesDe(ultimo.getFechaHora(), ultimo.getId(), pageable);
+        }
+    }
+
     @Transactional(readOnly = true)
     public PedidoDTO obtenerPedidoPorId(Long id, Long usuarioId, String rol) {
         Pedido pedido = pedidoRepositorio.findById(id)
@@ -166,23 +414,54 @@ public class PedidoService {
 
     @Transactional
     public PedidoDTO cambiarEstadoPedido(Long id, EstadoPedido nuevoEstado) {
-        Pedido pedido = pedidoRepositorio.findById(id)
+        return cambiarEstadoPedido(id, nuevoEstado, null);
+    }
+
+    /**
+     * Cambia el estado con un UPDATE condicional (WHERE estado = esperado) en vez de
+     * cargar y guardar la entidad: dos admins que cambian el mismo pedido a la vez no
+     * se pisan, el segundo recibe un conflicto. versionEsperada (opcional) es la que
+     * vio el cliente; si no coincide, también es conflicto.
+     */
+    @Transactional
+    public PedidoDTO cambiarEstadoPedido(Long id, EstadoPedido nuevoEstado, Long versionEsperada) {
+        EstadoPedido anterior = pedidoRepositorio.findEstadoById(id)
                 .orElseThrow(() -> new RegistroException("Pedido no encontrado"));
 
-        pedido.setEstado(nuevoEstado);
-        Pedido pedidoActualizado = pedidoRepositorio.save(pedido);
+        // Mientras el pago se procesa, el pedido lo mueve solo el resultado de la pasarela
+        if (pagoRepositorio.existsByPedidoIdAndEstado(id, EstadoPago.PROCESANDO)) {
+            throw new ConflictoEstadoException("El pago del pedido " + id + " todavía se está procesando");
+        }
+        if (!anterior.puedePasarA(nuevoEstado)) {
+            throw new ConflictoEstadoException("No se puede pasar de " + anterior + " a " + nuevoEstado
+                    + (anterior.siguientes().isEmpty() ? " (estado final)" : "; permitidos: " + anterior.siguientes()));
+        }
+        if (pedidoRepositorio.actualizarEstado(id, anterior, nuevoEstado, versionEsperada) == 0) {
+            throw new ConflictoEstadoException("El pedido " + id + " cambió mientras se actualizaba, recargalo e intentá de nuevo");
+        }
 
-        return convertirAPedidoDTO(pedidoActualizado);
+        Pedido pedidoActualizado = cargarConDetalle(List.of(id)).get(0);
+        Pago pago = pedidoActualizado.getPago();
+        if (nuevoEstado == EstadoPedido.CANCELADO && pago != null && pago.getEstado() == EstadoPago.APROBADO) {
+            // Ya estaba en el ledger como venta: sale en la misma transacción
+            ventasDiariasService.descontarPedido(pedidoActualizado);
+        }
+        PedidoDTO dto = convertirAPedidoDTO(pedidoActualizado);
+        eventosPedidoService.publicarTrasCommit(pedidoActualizado.getUsuario().getId(), new EventoPedidoDTO("ESTADO", pedidoActualizado.getId(),
+                nuevoEstado, anterior, pedidoActualizado.getFechaHora(), pedidoActualizado.getPrecioTotal(),
+                pedidoActualizado.getItems().size()));
+        return dto;
     }
 
     @Transactional(readOnly = true)
     public Long contarPedidosPorFecha(LocalDate fecha) {
-        return pedidoRepositorio.countByFecha(fecha);
+        // Todos los pedidos del día, en cualquier estado: también del ledger diario, no de contar pedidos
+        return ventasDiariasService.cantidadRecibidos(fecha);
     }
 
     @Transactional(readOnly = true)
     public List<PedidoDTO> listarPedidosPorEstado(EstadoPedido estado) {
-        List<Pedido> pedidos = pedidoRepositorio.findByEstadoOrderByFechaHoraDesc(estado);
+        List<Pedido> pedidos = cargarConDetalle(pedidoRepositorio.findIdsByEstado(estado));
         return pedidos.stream()
                 .map(this::convertirAPedidoDTO)
                 .collect(Collectors.toList());
@@ -192,7 +471,7 @@ public class PedidoService {
 
     @Transactional(readOnly = true)
     public List<PedidoDTO> listarPedidosDeUsuario(Long usuarioId) {
-        List<Pedido> pedidos = pedidoRepositorio.findByUsuarioIdOrderByFechaHoraDesc(usuarioId);
+        List<Pedido> pedidos = cargarConDetalle(pedidoRepositorio.findIdsByUsuarioId(usuarioId));
         return pedidos.stream()
                 .map(this::convertirAPedidoDTO)
                 .collect(Collectors.toList());
@@ -200,6 +479,49 @@ public class PedidoService {
 
     // ============= METODO AUXILIAR =============
 
+    /** Posición (fechaHora, id) del último pedido entregado, codificada en base64 url-safe. */
+    private record CursorPedido(LocalDateTime fechaHora, Long id) {
+
+        String codificar() {
+            String plano = fechaHora + "_" + id;
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static CursorPedido decodificar(String cursor) {
+            try {
+                String plano = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = plano.lastIndexOf('_');
+                return new CursorPedido(
+                        LocalDateTime.parse(plano.substring(0, sep)),
+                        Long.parseLong(plano.substring(sep + 1))
+                );
+            } catch (RuntimeException e) {
+                throw new RegistroException("Cursor inválido");
+            }
+        }
+    }
+
+    /**
+     * Segunda fase de los listados: trae los pedidos con usuario, items (producto/creación)
+     * y pago en una sola consulta, respetando el orden de los ids recibidos.
+     */
+    private List<Pedido> cargarConDetalle(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+
+        Map<Long, Pedido> porId = new HashMap<>();
+        for (Pedido p : pedidoRepositorio.findAllWithItemsAndPagoByIds(ids)) {
+            porId.put(p.getId(), p);
+        }
+
+        List<Pedido> ordenados = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Pedido p = porId.get(id);
+            if (p != null) ordenados.add(p);
+        }
+        return ordenados;
+    }
+
     public PedidoDTO convertirAPedidoDTO(Pedido pedido) {
         PedidoDTO dto = new PedidoDTO();
         dto.setId(pedido.getId());
@@ -210,6 +532,7 @@ public class PedidoService {
         dto.setDireccionEntrega(pedido.getDireccionEntrega());
         dto.setNombreCliente(pedido.getUsuario().getNombre() + " " + pedido.getUsuario().getApellido());
         dto.setEmailCliente(pedido.getUsuario().getEmail());
+        dto.setVersion(pedido.getVersion());
 
         // Convertir items
         if (pedido.getItems() != null && !pedido.getItems().isEmpty()) {
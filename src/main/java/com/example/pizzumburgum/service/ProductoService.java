@@ -16,14 +16,24 @@ import java.util.Objects;
 public class ProductoService {
 
     private final ProductoRepositorio productoRepositorio;
+    private final CatalogoService catalogoService;
+    private final ComposicionRepositorio composicionRepositorio;
 
-    public ProductoService(ProductoRepositorio productoRepositorio) {
+    public ProductoService(ProductoRepositorio productoRepositorio,
+                           CatalogoService catalogoService,
+                           ComposicionRepositorio composicionRepositorio) {
         this.productoRepositorio = productoRepositorio;
+        this.catalogoService = catalogoService;
+        this.composicionRepositorio = composicionRepositorio;
     }
 
-    /* ============ QUERIES ============ */
+    /* ============ QUERIES (desde el snapshot del catálogo) ============ */
     public java.util.Optional<Producto> buscarPorId(Long id) {
-        return productoRepositorio.findById(id);
+        return catalogoService.buscarPorId(id);
+    }
+
+    public List<Producto> listarTodos() {
+        return catalogoService.listarTodos();
     }
 
     /* ============ CREAR (uno) ============ */
@@ -32,7 +42,9 @@ public class ProductoService {
         if (nuevo == null) throw new IllegalArgumentException("Producto nulo");
         validarProductoBasico(nuevo);
         normalizarProducto(nuevo);
-        return productoRepositorio.save(nuevo);
+        Producto guardado = productoRepositorio.save(nuevo);
+        catalogoService.refrescarTrasCommit();
+        return guardado;
     }
 
     /* ============ CREAR (varios / bulk) ============ */
@@ -47,7 +59,9 @@ public class ProductoService {
             validarProductoBasico(p);
             normalizarProducto(p);
         }
-        return productoRepositorio.saveAll(productos);
+        List<Producto> guardados = productoRepositorio.saveAll(productos);
+        catalogoService.refrescarTrasCommit();
+        return guardados;
     }
 
     /* ============ PATCH (nombre, imagenUrl, categoria) ============ */
@@ -71,7 +85,9 @@ public class ProductoService {
         }
 
         normalizarProducto(p);
-        return productoRepositorio.save(p);
+        Producto guardado = productoRepositorio.save(p);
+        catalogoService.refrescarTrasCommit();
+        return guardado;
     }
 
     /* ============ ACTUALIZAR PRECIO ============ */
@@ -82,8 +98,16 @@ public class ProductoService {
 
         validarPrecio(nuevoPrecio);
         // Normalizamos a 2 decimales por consistencia con la columna (scale = 2)
+        BigDecimal anterior = p.getPrecio();
         p.setPrecio(nuevoPrecio.setScale(2, RoundingMode.HALF_UP));
-        return productoRepositorio.save(p);
+        Producto guardado = productoRepositorio.save(p);
+
+        // Precio desnormalizado de las composiciones que lo usan, en la misma transacción
+        if (anterior == null || anterior.compareTo(guardado.getPrecio()) != 0) {
+            composicionRepositorio.recalcularPreciosConProducto(guardado.getId());
+        }
+        catalogoService.refrescarTrasCommit();
+        return guardado;
     }
 
     /* ============ ACTUALIZAR DESCRIPCIÓN ============ */
@@ -95,7 +119,9 @@ public class ProductoService {
         validarDescripcion(nuevaDescripcion);
         p.setDescripcion(nuevaDescripcion == null ? null : nuevaDescripcion.trim());
         normalizarProducto(p);
-        return productoRepositorio.save(p);
+        Producto guardado = productoRepositorio.save(p);
+        catalogoService.refrescarTrasCommit();
+        return guardado;
     }
 
     /* ============ Helpers de validación ============ */
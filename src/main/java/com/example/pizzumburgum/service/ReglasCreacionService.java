@@ -0,0 +1,223 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.entities.Producto;
+import com.example.pizzumburgum.enums.CategoriaCreacion;
+import com.example.pizzumburgum.enums.CategoriaProducto;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Reglas de armado de creaciones (qué categorías de producto admite cada tipo y
+ * cuántas de cada una), leídas de configuración y compiladas a arreglos min/max
+ * indexados por ordinal de CategoriaProducto.
+ * - Formato: creaciones.reglas.PIZZA_BASE=TIPO_MASA:1,TOPPING_PIZZA:0..5,SALSA_PIZZA:0..*
+ *   (un número solo = exactamente ese; * = sin máximo; categoría ausente = no permitida).
+ * - Validar es una pasada sobre los productos contando en un int[] y otra sobre los
+ *   límites: sin sets, streams ni mapas por request.
+ * - Un admin puede reemplazar la regla de un tipo en caliente, pero el cambio es
+ *   local y temporal: vive solo en la memoria de esta instancia, no se replica a
+ *   otros nodos y se pierde al reiniciar. La regla permanente (y la que ven todos
+ *   los nodos) es la de creaciones.reglas.* en el properties.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReglasCreacionService {
+
+    private static final CategoriaProducto[] CATEGORIAS = CategoriaProducto.values();
+    private static final int SIN_MAXIMO = Integer.MAX_VALUE;
+
+    // Reglas por defecto (las que estaban fijas en CreacionService)
+    private static final Map<CategoriaCreacion, String> POR_DEFECTO = Map.of(
+            CategoriaCreacion.PIZZA_BASE,
+            "TIPO_MASA:1,TAMANIO_PIZZA:1,SALSA_PIZZA:0..*,TOPPING_PIZZA:0..5,BEBIDA:0..1,ACOMPANIAMIENTO:0..*",
+            CategoriaCreacion.HAMBURGUESA_BASE,
+            "TIPO_PAN:1,TIPO_CARNE:0..3,TIPO_QUESO:0..*,SALSA_HAMBURGUESA:0..2,TOPPING_HAMBURGUESA:0..5,"
+                    + "BEBIDA:0..1,ACOMPANIAMIENTO:0..*"
+    );
+
+    // Nombre legible de cada categoría para los mensajes al cliente: {singular, plural}
+    private static final Map<CategoriaProducto, String[]> ETIQUETAS = new EnumMap<>(Map.ofEntries(
+            Map.entry(CategoriaProducto.TIPO_MASA, new String[]{"tipo de masa", "tipos de masa"}),
+            Map.entry(CategoriaProducto.SALSA_PIZZA, new String[]{"salsa para pizza", "salsas para pizza"}),
+            Map.entry(CategoriaProducto.TAMANIO_PIZZA, new String[]{"tamaño de pizza", "tamaños de pizza"}),
+            Map.entry(CategoriaProducto.TOPPING_PIZZA, new String[]{"topping para pizza", "toppings para pizza"}),
+            Map.entry(CategoriaProducto.TIPO_PAN, new String[]{"tipo de pan", "tipos de pan"}),
+            Map.entry(CategoriaProducto.TIPO_CARNE, new String[]{"tipo de carne", "tipos de carne"}),
+            Map.entry(CategoriaProducto.TIPO_QUESO, new String[]{"tipo de queso", "tipos de queso"}),
+            Map.entry(CategoriaProducto.SALSA_HAMBURGUESA, new String[]{"salsa para hamburguesa", "salsas para hamburguesa"}),
+            Map.entry(CategoriaProducto.TOPPING_HAMBURGUESA, new String[]{"topping para hamburguesa", "toppings para hamburguesa"}),
+            Map.entry(CategoriaProducto.ACOMPANIAMIENTO, new String[]{"acompañamiento por creación", "acompañamientos por creación"}),
+            Map.entry(CategoriaProducto.BEBIDA, new String[]{"bebida por creación", "bebidas por creación"})
+    ));
+
+    private final Environment environment;
+
+    // Se reemplaza entero (copy-on-write), así validar nunca ve una regla a medio armar
+    private volatile Map<CategoriaCreacion, Regla> reglas = new EnumMap<>(CategoriaCreacion.class);
+
+    @PostConstruct
+    void inicializar() {
+        EnumMap<CategoriaCreacion, Regla> compiladas = new EnumMap<>(CategoriaCreacion.class);
+        for (CategoriaCreacion tipo : CategoriaCreacion.values()) {
+            String definicion = environment.getProperty("creaciones.reglas." + tipo.name(), POR_DEFECTO.get(tipo));
+            if (definicion == null) {
+                log.warn("Sin reglas para {}: no se podrán crear creaciones de ese tipo", tipo);
+                continue;
+            }
+            compiladas.put(tipo, compilar(tipo, definicion));
+        }
+        this.reglas = compiladas;
+    }
+
+    /* ============ VALIDACIÓN ============ */
+
+    public void validar(CategoriaCreacion tipo, List<Producto> productos) {
+        Regla regla = reglas.get(tipo);
+        if (regla == null) {
+            throw new IllegalArgumentException("No hay reglas definidas para " + tipo);
+        }
+
+        int[] conteo = new int[CATEGORIAS.length];
+        for (int i = 0, n = productos.size(); i < n; i++) {
+            Producto p = productos.get(i);
+            int ord = p.getCategoria().ordinal();
+            if (regla.max[ord] == 0) {
+                throw new IllegalArgumentException(
+                        "El producto '" + p.getNombre() + "' no se puede agregar a una " + etiqueta(tipo));
+            }
+            conteo[ord]++;
+        }
+
+        for (int ord = 0; ord < CATEGORIAS.length; ord++) {
+            int min = regla.min[ord];
+            int max = regla.max[ord];
+            int c = conteo[ord];
+            if (c >= min && c <= max) continue;
+
+            if (min == max) {
+                throw new IllegalArgumentException("Debe haber exactamente " + min + " " + etiqueta(CATEGORIAS[ord], min));
+            }
+            if (c < min) {
+                throw new IllegalArgumentException("Debe haber al menos " + min + " " + etiqueta(CATEGORIAS[ord], min));
+            }
+            throw new IllegalArgumentException("Máximo " + max + " " + etiqueta(CATEGORIAS[ord], max));
+        }
+    }
+
+    private static String etiqueta(CategoriaProducto categoria, int cantidad) {
+        String[] formas = ETIQUETAS.get(categoria);
+        if (formas == null) {
+            // Categoría nueva sin etiqueta todavía: mejor el nombre que nada
+            return categoria.name().toLowerCase().replace('_', ' ');
+        }
+        return formas[cantidad == 1 ? 0 : 1];
+    }
+
+    private static String etiqueta(CategoriaCreacion tipo) {
+        return tipo == CategoriaCreacion.PIZZA_BASE ? "pizza" : "hamburguesa";
+    }
+
+    /* ============ ADMINISTRACIÓN ============ */
+
+    /** Reglas vigentes, en el mismo formato que la configuración. */
+    public Map<CategoriaCreacion, String> listar() {
+        Map<CategoriaCreacion, String> resultado = new EnumMap<>(CategoriaCreacion.class);
+        reglas.forEach((tipo, regla) -> resultado.put(tipo, regla.definicion));
+        return resultado;
+    }
+
+    /**
+     * Compila y publica la regla de un tipo; si la definición es inválida no cambia nada.
+     * Solo afecta a esta instancia y hasta el próximo arranque (ver doc de la clase).
+     */
+    public String actualizar(CategoriaCreacion tipo, String definicion) {
+        Regla nueva = compilar(tipo, definicion);
+        synchronized (this) {
+            EnumMap<CategoriaCreacion, Regla> copia = new EnumMap<>(CategoriaCreacion.class);
+            copia.putAll(reglas);
+            copia.put(tipo, nueva);
+            this.reglas = copia;
+        }
+        log.warn("Reglas de {} actualizadas solo en esta instancia y hasta reiniciar: {} "
+                + "(para que sea permanente, va a creaciones.reglas.{})", tipo, nueva.definicion, tipo);
+        return nueva.definicion;
+    }
+
+    /* ============ COMPILACIÓN ============ */
+
+    private static Regla compilar(CategoriaCreacion tipo, String definicion) {
+        if (definicion == null || definicion.isBlank()) {
+            throw new IllegalArgumentException("La regla de " + tipo + " está vacía");
+        }
+        int[] min = new int[CATEGORIAS.length];
+        int[] max = new int[CATEGORIAS.length];     // 0 = categoría no permitida
+        List<String> normalizada = new ArrayList<>();
+
+        for (String parte : definicion.split(",")) {
+            String entrada = parte.trim();
+            if (entrada.isEmpty()) continue;
+
+            int dosPuntos = entrada.indexOf(':');
+            if (dosPuntos < 0) {
+                throw new IllegalArgumentException("Regla inválida para " + tipo + ": '" + entrada + "' (se espera CATEGORIA:min..max)");
+            }
+            CategoriaProducto categoria;
+            try {
+                categoria = CategoriaProducto.valueOf(entrada.substring(0, dosPuntos).trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Categoría de producto desconocida en la regla de " + tipo + ": " + entrada);
+            }
+            int ord = categoria.ordinal();
+            if (max[ord] != 0) {
+                throw new IllegalArgumentException("Categoría repetida en la regla de " + tipo + ": " + categoria);
+            }
+
+            String rango = entrada.substring(dosPuntos + 1).trim();
+            int separador = rango.indexOf("..");
+            int minimo = parsearLimite(tipo, separador < 0 ? rango : rango.substring(0, separador), false);
+            int maximo = separador < 0 ? minimo : parsearLimite(tipo, rango.substring(separador + 2), true);
+            if (maximo < 1 || minimo > maximo) {
+                throw new IllegalArgumentException("Rango inválido en la regla de " + tipo + ": " + entrada);
+            }
+            min[ord] = minimo;
+            max[ord] = maximo;
+            normalizada.add(categoria + ":" + (minimo == maximo ? String.valueOf(minimo)
+                    : minimo + ".." + (maximo == SIN_MAXIMO ? "*" : String.valueOf(maximo))));
+        }
+        if (normalizada.isEmpty()) {
+            throw new IllegalArgumentException("La regla de " + tipo + " no permite ninguna categoría");
+        }
+        return new Regla(min, max, String.join(",", normalizada));
+    }
+
+    private static int parsearLimite(CategoriaCreacion tipo, String valor, boolean admiteSinMaximo) {
+        String v = valor.trim();
+        if (admiteSinMaximo && v.equals("*")) return SIN_MAXIMO;
+        try {
+            int n = Integer.parseInt(v);
+            if (n < 0) throw new NumberFormatException();
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Límite inválido en la regla de " + tipo + ": '" + valor + "'");
+        }
+    }
+
+    // min/max indexados por CategoriaProducto.ordinal()
+    private static final class Regla {
+        private final int[] min;
+        private final int[] max;
+        private final String definicion;
+
+        private Regla(int[] min, int[] max, String definicion) {
+            this.min = min;
+            this.max = max;
+            this.definicion = definicion;
+        }
+    }
+}
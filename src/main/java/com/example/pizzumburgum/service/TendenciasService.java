@@ -0,0 +1,408 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.dto.response.TendenciaDTO;
+import com.example.pizzumburgum.entities.Pedido;
+import com.example.pizzumburgum.entities.Composicion;
+import com.example.pizzumburgum.entities.PedidoItem;
+import com.example.pizzumburgum.enums.CategoriaCreacion;
+import com.example.pizzumburgum.repository.ComposicionRepositorio;
+import com.example.pizzumburgum.repository.CreacionRepositorio;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ranking aproximado de lo más vendido (productos y creaciones) sin recorrer pedido_items.
+ * - Las creaciones se cuentan por composición: cien clientes que arman la misma pizza
+ *   suman en una sola entrada, no en cien de una unidad cada una.
+ * - Cada ventana es un anillo de cubetas de tiempo; cada cubeta es un resumen
+ *   Space-Saving de capacidad fija: memoria acotada sin importar cuántos ids distintos
+ *   se vendan, y el error de cada cuenta está acotado (se informa junto a la cuenta).
+ * - Ventanas: última hora (12 cubetas de 5 min), hoy (cubetas de 1 h desde la
+ *   medianoche local) y semana (7 cubetas de 1 día). Lo viejo se descarta solo
+ *   cuando su cubeta se reutiliza.
+ * - Consultar una ventana suma las cubetas vigentes y ordena. Un id ausente de una
+ *   cubeta llena pudo haber sido desalojado de ella, así que suma el mínimo de esa
+ *   cubeta (a cuenta y error): las cuentas siguen siendo cotas superiores.
+ * - Se guarda en disco al apagar (y periódicamente) y se recarga al arrancar: las
+ *   cubetas conservan su época, así que las que vencieron mientras estaba apagado
+ *   simplemente no cuentan.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TendenciasService {
+
+    public enum Tipo { PRODUCTO, CREACION }
+
+    public enum Periodo { HORA, HOY, SEMANA }
+
+    private static final long MINUTO = 60_000L;
+    private static final long HORA = 60 * MINUTO;
+    private static final long DIA = 24 * HORA;
+
+    @Value("${tendencias.capacidad:200}")
+    private int capacidad;
+
+    @Value("${tendencias.archivo:./data/tendencias.json}")
+    private String archivo;
+
+    private final ObjectMapper objectMapper;
+    private final CatalogoService catalogoService;
+    private final CreacionRepositorio creacionRepositorio;
+    private final ComposicionRepositorio composicionRepositorio;
+
+    private final Map<Tipo, Rastreador> rastreadores = new EnumMap<>(Tipo.class);
+
+    @PostConstruct
+    void inicializar() {
+        for (Tipo tipo : Tipo.values()) {
+            rastreadores.put(tipo, new Rastreador(capacidad));
+        }
+        cargarInstantanea();
+    }
+
+    @PreDestroy
+    void detener() {
+        guardarInstantanea();
+    }
+
+    /* ============ REGISTRO ============ */
+
+    /** Suma las unidades de cada línea del pedido; nunca hace fallar al que llama. */
+    public void registrarPedido(Pedido pedido) {
+        try {
+            long ahora = System.currentTimeMillis();
+            for (PedidoItem item : pedido.getItems()) {
+                int unidades = item.getCantidad() == null ? 1 : item.getCantidad();
+                if (item.getProducto() != null) {
+                    rastreadores.get(Tipo.PRODUCTO).sumar(item.getProducto().getId(), unidades, ahora);
+                }
+                // getId() del proxy no inicializa la composición
+                Composicion composicion = item.getCreacion() != null ? item.getCreacion().getComposicion() : null;
+                if (composicion != null) {
+                    rastreadores.get(Tipo.CREACION).sumar(composicion.getId(), unidades, ahora);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo registrar el pedido {} en tendencias", pedido.getId(), e);
+        }
+    }
+
+    /* ============ CONSULTA ============ */
+
+    public record Posicion(long id, long cuenta, long errorMaximo) {}
+
+    /** Los `limite` ids con más unidades en el periodo, de mayor a menor. */
+    public List<Posicion> top(Tipo tipo, Periodo periodo, int limite) {
+        return rastreadores.get(tipo).top(periodo, Math.max(1, Math.min(limite, capacidad)), System.currentTimeMillis());
+    }
+
+    /**
+     * Ranking con nombres; conCuentas = vista de admin (cuenta y cota de error). Las creaciones
+     * son de los clientes: el público ve solo una etiqueta por categoría y el admin el nombre de
+     * una de las creaciones con esa composición.
+     */
+    public List<TendenciaDTO> ranking(Tipo tipo, Periodo periodo, int limite, boolean conCuentas) {
+        List<Posicion> posiciones = top(tipo, periodo, limite);
+        Map<Long, String> nombres = new HashMap<>();
+        if (tipo == Tipo.PRODUCTO) {
+            for (Posicion p : posiciones) {
+                catalogoService.buscarPorId(p.id()).ifPresent(prod -> nombres.put(prod.getId(), prod.getNombre()));
+            }
+        } else if (!posiciones.isEmpty()) {
+            List<Long> ids = posiciones.stream().map(Posicion::id).toList();
+            List<Object[]> filas = conCuentas
+                    ? creacionRepositorio.findNombrePorComposicionIds(ids)
+                    : composicionRepositorio.findCategoriasByIds(ids);
+            for (Object[] fila : filas) {
+                nombres.put((Long) fila[0], conCuentas ? (String) fila[1] : etiquetaPublica((CategoriaCreacion) fila[1]));
+            }
+        }
+
+        List<TendenciaDTO> ranking = new ArrayList<>(posiciones.size());
+        for (Posicion p : posiciones) {
+            String nombre = nombres.get(p.id());
+            if (nombre == null) continue;       // borrado desde que se vendió
+            ranking.add(new TendenciaDTO(ranking.size() + 1, p.id(), nombre,
+                    conCuentas ? p.cuenta() : null, conCuentas ? p.errorMaximo() : null));
+        }
+        return ranking;
+    }
+
+    private static String etiquetaPublica(CategoriaCreacion categoria) {
+        return switch (categoria) {
+            case PIZZA_BASE -> "Pizza creada por un cliente";
+            case HAMBURGUESA_BASE -> "Hamburguesa creada por un cliente";
+        };
+    }
+
+    /* ============ INSTANTÁNEA EN DISCO ============ */
+
+    // Clave de cada tipo en el archivo. Las creaciones van como COMPOSICION: una instantánea
+    // vieja (CREACION, contada por id de creación) no se mezcla con las cuentas nuevas
+    private static String claveInstantanea(Tipo tipo) {
+        return tipo == Tipo.CREACION ? "COMPOSICION" : tipo.name();
+    }
+
+    // Solo ordena a los que escriben el archivo (programada y apagado); registrar y consultar no lo toman
+    private final ReentrantLock escritura = new ReentrantLock();
+
+    @Scheduled(fixedDelayString = "${tendencias.snapshot-ms:300000}", initialDelayString = "${tendencias.snapshot-ms:300000}")
+    public void guardarInstantanea() {
+        Path destino = Paths.get(archivo);
+        // ReentrantLock y no synchronized: la escritura en disco no fija (pin) un hilo virtual a su carrier
+        escritura.lock();
+        try {
+            // Cada rastreador se copia bajo su propio monitor, sin I/O; la serialización va afuera
+            Map<String, Map<String, List<CubetaGuardada>>> datos = new LinkedHashMap<>();
+            rastreadores.forEach((tipo, r) -> datos.put(claveInstantanea(tipo), r.exportar()));
+            byte[] contenido = objectMapper.writeValueAsBytes(datos);
+
+            if (destino.getParent() != null) Files.createDirectories(destino.getParent());
+            // Escritura atómica: un corte a mitad nunca deja un archivo truncado
+            Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+            Files.write(temporal, contenido);
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("No se pudo guardar la instantánea de tendencias en {}", destino, e);
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    private void cargarInstantanea() {
+        Path origen = Paths.get(archivo);
+        if (!Files.exists(origen)) return;
+        try {
+            Map<String, Map<String, List<CubetaGuardada>>> datos = objectMapper.readValue(origen.toFile(),
+                    new TypeReference<Map<String, Map<String, List<CubetaGuardada>>>>() {});
+            for (Tipo tipo : Tipo.values()) {
+                Map<String, List<CubetaGuardada>> anillos = datos.get(claveInstantanea(tipo));
+                if (anillos != null) rastreadores.get(tipo).importar(anillos);
+            }
+            log.info("Tendencias recuperadas de {}", origen);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Instantánea de tendencias ilegible en {}, se empieza de cero", origen, e);
+        }
+    }
+
+    public record CubetaGuardada(long epoca, List<long[]> contadores) {}
+
+    /* ============ RASTREADOR (tres anillos por tipo) ============ */
+
+    private static final class Rastreador {
+        private final Anillo cincoMinutos;     // última hora
+        private final Anillo horas;            // hoy
+        private final Anillo dias;             // semana
+
+        private Rastreador(int capacidad) {
+            this.cincoMinutos = new Anillo(5 * MINUTO, 12, capacidad);
+            this.horas = new Anillo(HORA, 24, capacidad);
+            this.dias = new Anillo(DIA, 7, capacidad);
+        }
+
+        private synchronized void sumar(long id, int unidades, long ahora) {
+            cincoMinutos.sumar(id, unidades, ahora);
+            horas.sumar(id, unidades, ahora);
+            dias.sumar(id, unidades, ahora);
+        }
+
+        private synchronized List<Posicion> top(Periodo periodo, int limite, long ahora) {
+            return switch (periodo) {
+                case HORA -> cincoMinutos.top(limite, ahora, ahora - HORA);
+                case HOY -> horas.top(limite, ahora, LocalDate.now().atStartOfDay(ZoneId.systemDefault())
+                        .toInstant().toEpochMilli());
+                case SEMANA -> dias.top(limite, ahora, Long.MIN_VALUE);
+            };
+        }
+
+        private synchronized Map<String, List<CubetaGuardada>> exportar() {
+            Map<String, List<CubetaGuardada>> anillos = new LinkedHashMap<>();
+            anillos.put("cincoMinutos", cincoMinutos.exportar());
+            anillos.put("horas", horas.exportar());
+            anillos.put("dias", dias.exportar());
+            return anillos;
+        }
+
+        private synchronized void importar(Map<String, List<CubetaGuardada>> anillos) {
+            cincoMinutos.importar(anillos.getOrDefault("cincoMinutos", List.of()));
+            horas.importar(anillos.getOrDefault("horas", List.of()));
+            dias.importar(anillos.getOrDefault("dias", List.of()));
+        }
+    }
+
+    /* ============ ANILLO DE CUBETAS ============ */
+
+    private static final class Anillo {
+        private final long ancho;
+        private final EspacioAhorro[] cubetas;
+        private final long[] epocas;           // índice de cubeta (tiempo / ancho) de cada posición
+
+        private Anillo(long ancho, int cantidad, int capacidad) {
+            this.ancho = ancho;
+            this.cubetas = new EspacioAhorro[cantidad];
+            this.epocas = new long[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                cubetas[i] = new EspacioAhorro(capacidad);
+                epocas[i] = -1;
+            }
+        }
+
+        private void sumar(long id, int unidades, long ahora) {
+            long epoca = ahora / ancho;
+            int i = (int) (epoca % cubetas.length);
+            if (epocas[i] != epoca) {
+                cubetas[i].vaciar();
+                epocas[i] = epoca;
+            }
+            cubetas[i].sumar(id, unidades);
+        }
+
+        // Suma las cubetas vigentes que empiezan en o después de `desde`
+        private List<Posicion> top(int limite, long ahora, long desde) {
+            long actual = ahora / ancho;
+            List<EspacioAhorro> vigentes = new ArrayList<>(cubetas.length);
+            for (int i = 0; i < cubetas.length; i++) {
+                long epoca = epocas[i];
+                if (epoca < 0 || epoca <= actual - cubetas.length || epoca > actual) continue;
+                if ((epoca + 1) * ancho <= desde) continue;
+                vigentes.add(cubetas[i]);
+            }
+
+            Map<Long, long[]> total = new HashMap<>();      // id -> [cuenta, error]
+            for (EspacioAhorro cubeta : vigentes) {
+                cubeta.acumularEn(total);
+            }
+            for (EspacioAhorro cubeta : vigentes) {
+                cubeta.acotarAusentes(total);
+            }
+
+            List<Posicion> posiciones = new ArrayList<>(total.size());
+            total.forEach((id, c) -> posiciones.add(new Posicion(id, c[0], c[1])));
+            posiciones.sort(Comparator.comparingLong(Posicion::cuenta).reversed()
+                    .thenComparingLong(Posicion::id));
+            return posiciones.size() > limite ? new ArrayList<>(posiciones.subList(0, limite)) : posiciones;
+        }
+
+        private List<CubetaGuardada> exportar() {
+            List<CubetaGuardada> guardadas = new ArrayList<>();
+            for (int i = 0; i < cubetas.length; i++) {
+                if (epocas[i] >= 0) guardadas.add(new CubetaGuardada(epocas[i], cubetas[i].exportar()));
+            }
+            return guardadas;
+        }
+
+        private void importar(List<CubetaGuardada> guardadas) {
+            for (CubetaGuardada g : guardadas) {
+                int i = (int) (g.epoca() % cubetas.length);
+                if (g.epoca() < epocas[i]) continue;
+                cubetas[i].vaciar();
+                epocas[i] = g.epoca();
+                for (long[] c : g.contadores()) {
+                    cubetas[i].restaurar(c[0], c[1], c[2]);
+                }
+            }
+        }
+    }
+
+    /* ============ SPACE-SAVING ============ */
+
+    /**
+     * Resumen Space-Saving (Metwally et al.): a lo sumo `capacidad` contadores. Un id
+     * nuevo con el resumen lleno reemplaza al de menor cuenta y hereda esa cuenta como
+     * error, así la cuenta nunca subestima y sobreestima a lo sumo en `error`.
+     */
+    private static final class EspacioAhorro {
+        private final int capacidad;
+        private final Map<Long, long[]> contadores;     // id -> [cuenta, error]
+
+        private EspacioAhorro(int capacidad) {
+            this.capacidad = Math.max(1, capacidad);
+            this.contadores = new HashMap<>(this.capacidad * 2);
+        }
+
+        private void sumar(long id, long unidades) {
+            long[] c = contadores.get(id);
+            if (c != null) {
+                c[0] += unidades;
+                return;
+            }
+            if (contadores.size() < capacidad) {
+                contadores.put(id, new long[]{unidades, 0});
+                return;
+            }
+            // Desalojar el mínimo: capacidad chica, una pasada lineal alcanza
+            Long minimoId = null;
+            long[] minimo = null;
+            for (Map.Entry<Long, long[]> e : contadores.entrySet()) {
+                if (minimo == null || e.getValue()[0] < minimo[0]) {
+                    minimoId = e.getKey();
+                    minimo = e.getValue();
+                }
+            }
+            contadores.remove(minimoId);
+            contadores.put(id, new long[]{minimo[0] + unidades, minimo[0]});
+        }
+
+        private void acumularEn(Map<Long, long[]> total) {
+            contadores.forEach((id, c) -> {
+                long[] t = total.computeIfAbsent(id, k -> new long[2]);
+                t[0] += c[0];
+                t[1] += c[1];
+            });
+        }
+
+        /**
+         * Si el resumen está lleno, un id que no figura pudo haber tenido hasta el mínimo
+         * actual antes de ser desalojado: se le suma como cuenta posible y como error.
+         * Con lugar libre, no figurar significa que no apareció.
+         */
+        private void acotarAusentes(Map<Long, long[]> total) {
+            if (contadores.size() < capacidad) return;
+            long minimo = Long.MAX_VALUE;
+            for (long[] c : contadores.values()) {
+                minimo = Math.min(minimo, c[0]);
+            }
+            final long cota = minimo;
+            total.forEach((id, t) -> {
+                if (!contadores.containsKey(id)) {
+                    t[0] += cota;
+                    t[1] += cota;
+                }
+            });
+        }
+
+        private void vaciar() {
+            contadores.clear();
+        }
+
+        private List<long[]> exportar() {
+            List<long[]> filas = new ArrayList<>(contadores.size());
+            contadores.forEach((id, c) -> filas.add(new long[]{id, c[0], c[1]}));
+            return filas;
+        }
+
+        private void restaurar(long id, long cuenta, long error) {
+            if (contadores.size() < capacidad || contadores.containsKey(id)) {
+                contadores.put(id, new long[]{cuenta, error});
+            }
+        }
+    }
+}
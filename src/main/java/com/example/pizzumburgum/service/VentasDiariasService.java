@@ -0,0 +1,228 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.dto.response.VentaDiariaDTO;
+import com.example.pizzumburgum.entities.Pedido;
+import com.example.pizzumburgum.entities.PedidoItem;
+import com.example.pizzumburgum.entities.Producto;
+import com.example.pizzumburgum.entities.VentaDiaria;
+import com.example.pizzumburgum.entities.VentaDiariaCategoria;
+import com.example.pizzumburgum.entities.VentaDiariaProducto;
+import com.example.pizzumburgum.repository.VentaDiariaCategoriaRepositorio;
+import com.example.pizzumburgum.repository.VentaDiariaProductoRepositorio;
+import com.example.pizzumburgum.repository.VentaDiariaRepositorio;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Ledger de ventas diarias: cantidad de pedidos, total bruto, totales por categoría y
+ * unidades por producto. Los reportes leen una fila por día en lugar de re-escanear
+ * pedidos, pedido_items y pagos.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VentasDiariasService {
+
+    private final VentaDiariaRepositorio ventaDiariaRepositorio;
+    private final VentaDiariaCategoriaRepositorio ventaDiariaCategoriaRepositorio;
+    private final VentaDiariaProductoRepositorio ventaDiariaProductoRepositorio;
+    private final CatalogoService catalogoService;
+
+    /* ============ Actualización incremental ============ */
+
+    /**
+     * Suma un pedido cobrado al ledger de su día. Corre dentro de la transacción que confirma
+     * el pago en {@link PedidoService#crearPedido}, así que el ledger se confirma (o se descarta) junto con ella.
+     */
+    @Transactional
+    public void registrarPedido(Pedido pedido) {
+        aplicar(pedido, 1);
+    }
+
+    /**
+     * Cuenta un pedido recibido (cobrado o no), en la misma transacción que lo crea: así el
+     * listado del día responde la cantidad total sin contar filas de pedidos.
+     */
+    @Transactional
+    public void registrarRecibido(Pedido pedido) {
+        ventaDiariaRepositorio.sumarRecibido(fechaDe(pedido));
+    }
+
+    /**
+     * Resta un pedido cobrado que se cancela después: el ledger cuenta lo mismo que el
+     * backfill (pago APROBADO y pedido no cancelado), haya corrido la reparación o no.
+     */
+    @Transactional
+    public void descontarPedido(Pedido pedido) {
+        aplicar(pedido, -1);
+    }
+
+    private void aplicar(Pedido pedido, int signo) {
+        BigDecimal factor = BigDecimal.valueOf(signo);
+        LocalDate fecha = fechaDe(pedido);
+
+        Map<String, BigDecimal> porCategoria = new HashMap<>();
+        Map<Long, Long> unidades = new HashMap<>();
+
+        for (PedidoItem item : pedido.getItems()) {
+            String categoria = categoriaDe(item);
+            if (categoria != null) {
+                porCategoria.merge(categoria, item.getSubtotal().multiply(factor), BigDecimal::add);
+            }
+            if (item.getProducto() != null) {
+                unidades.merge(item.getProducto().getId(), (long) signo * item.getCantidad(), Long::sum);
+            }
+        }
+
+        ventaDiariaRepositorio.sumar(fecha, signo, pedido.getPrecioTotal().multiply(factor));
+        porCategoria.forEach((categoria, total) -> ventaDiariaCategoriaRepositorio.sumar(fecha, categoria, total));
+        unidades.forEach((productoId, cant) -> ventaDiariaProductoRepositorio.sumar(fecha, productoId, cant));
+    }
+
+    // La categoría del producto sale del catálogo en memoria para no inicializar el proxy
+    private String categoriaDe(PedidoItem item) {
+        if (item.getProducto() != null) {
+            return catalogoService.buscarPorId(item.getProducto().getId())
+                    .map(Producto::getCategoria)
+                    .orElseGet(() -> item.getProducto().getCategoria())
+                    .name();
+        }
+        if (item.getCreacion() != null && item.getCreacion().getCategoriaCreacion() != null) {
+            return item.getCreacion().getCategoriaCreacion().name();
+        }
+        return null;
+    }
+
+    private static LocalDate fechaDe(Pedido pedido) {
+        return (pedido.getFechaHora() != null)
+                ? pedido.getFechaHora().toLocalDate()
+                : LocalDate.now();
+    }
+
+    /* ============ Lecturas O(1) por día ============ */
+
+    /** Pedidos recibidos en el día en cualquier estado; sin fila (o sin reparar) se cuentan desde pedidos. */
+    @Transactional(readOnly = true)
+    public long cantidadRecibidos(LocalDate fecha) {
+        return ventaDiariaRepositorio.findCantidadRecibidosByFecha(fecha)
+                .orElseGet(() -> ventaDiariaRepositorio.contarRecibidos(
+                        fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay()));
+    }
+
+    /**
+     * Cantidad y total del día desde el ledger. Si el día no fue registrado (p. ej. anterior a
+     * la creación del ledger y sin backfill) se calcula con una consulta de agregación.
+     */
+    @Transactional(readOnly = true)
+    public VentaDiaria resumenDelDia(LocalDate fecha) {
+        return ventaDiariaRepositorio.findById(fecha).orElseGet(() -> {
+            List<Object[]> filas = ventaDiariaRepositorio.agregarPedidos(
+                    fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay());
+            VentaDiaria calculada = new VentaDiaria();
+            calculada.setFecha(fecha);
+            if (!filas.isEmpty()) {
+                calculada.setCantidadPedidos(((Number) filas.get(0)[0]).longValue());
+                calculada.setTotalBruto(toBigDecimal(filas.get(0)[1]));
+            }
+            return calculada;
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public VentaDiariaDTO obtenerDetalle(LocalDate fecha) {
+        VentaDiaria venta = ventaDiariaRepositorio.findById(fecha).orElse(null);
+
+        Map<String, BigDecimal> porCategoria = new TreeMap<>();
+        for (VentaDiariaCategoria c : ventaDiariaCategoriaRepositorio.findByFecha(fecha)) {
+            porCategoria.put(c.getCategoria(), c.getTotal());
+        }
+
+        Map<Long, Long> unidades = new LinkedHashMap<>();
+        ventaDiariaProductoRepositorio.findByFecha(fecha).stream()
+                .sorted((a, b) -> Long.compare(b.getUnidades(), a.getUnidades()))
+                .forEach(p -> unidades.put(p.getProductoId(), p.getUnidades()));
+
+        return new VentaDiariaDTO(
+                fecha,
+                venta != null ? venta.getCantidadPedidos() : 0L,
+                venta != null ? venta.getTotalBruto() : new BigDecimal("0.00"),
+                porCategoria,
+                unidades
+        );
+    }
+
+    /* ============ Backfill / reparación ============ */
+
+    /** Recalcula el ledger de cada día del rango [desde, hasta] desde las tablas de pedidos. */
+    @Transactional
+    public int reconstruir(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null || hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("Rango de fechas inválido");
+        }
+
+        int dias = 0;
+        for (LocalDate fecha = desde; !fecha.isAfter(hasta); fecha = fecha.plusDays(1)) {
+            reconstruirDia(fecha);
+            dias++;
+        }
+        return dias;
+    }
+
+    private void reconstruirDia(LocalDate fecha) {
+        // día calendario [00:00, 24:00)
+        LocalDateTime start = fecha.atStartOfDay();
+        LocalDateTime end = fecha.plusDays(1).atStartOfDay();
+
+        ventaDiariaRepositorio.deleteByFecha(fecha);
+        ventaDiariaCategoriaRepositorio.deleteByFecha(fecha);
+        ventaDiariaProductoRepositorio.deleteByFecha(fecha);
+
+        long recibidos = ventaDiariaRepositorio.contarRecibidos(start, end);
+        if (recibidos == 0) return;
+
+        List<Object[]> pedidos = ventaDiariaRepositorio.agregarPedidos(start, end);
+        long cantidad = pedidos.isEmpty() ? 0L : ((Number) pedidos.get(0)[0]).longValue();
+        BigDecimal total = pedidos.isEmpty() ? new BigDecimal("0.00") : toBigDecimal(pedidos.get(0)[1]);
+        ventaDiariaRepositorio.sumar(fecha, cantidad, total);
+        ventaDiariaRepositorio.fijarRecibidos(fecha, recibidos);
+        if (cantidad == 0) return;
+
+        for (Object[] fila : ventaDiariaRepositorio.agregarPorCategoriaProducto(start, end)) {
+            ventaDiariaCategoriaRepositorio.sumar(fecha, ((Enum<?>) fila[0]).name(), toBigDecimal(fila[1]));
+        }
+        for (Object[] fila : ventaDiariaRepositorio.agregarPorCategoriaCreacion(start, end)) {
+            ventaDiariaCategoriaRepositorio.sumar(fecha, ((Enum<?>) fila[0]).name(), toBigDecimal(fila[1]));
+        }
+        for (Object[] fila : ventaDiariaRepositorio.agregarUnidadesPorProducto(start, end)) {
+            ventaDiariaProductoRepositorio.sumar(fecha, ((Number) fila[0]).longValue(), ((Number) fila[1]).longValue());
+        }
+    }
+
+    /** Repara el día anterior (por si algún pedido quedó fuera del ledger). */
+    @Scheduled(cron = "${ventas.backfill.cron:0 30 3 * * *}")
+    @Transactional
+    public void repararDiaAnterior() {
+        LocalDate ayer = LocalDate.now().minusDays(1);
+        reconstruir(ayer, ayer);
+        log.info("Ledger de ventas reconstruido para {}", ayer);
+    }
+
+    private static BigDecimal toBigDecimal(Object valor) {
+        if (valor == null) return new BigDecimal("0.00");
+        BigDecimal bd = (valor instanceof BigDecimal b) ? b : new BigDecimal(valor.toString());
+        return bd.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.pizzumburgum.benchmark;
+
+import com.example.pizzumburgum.entities.Carrito;
+import com.example.pizzumburgum.entities.CarritoItem;
+import com.example.pizzumburgum.service.CarritoMemoriaService.CarritoActivo;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Constructor;
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el recálculo completo del total (la reducción de BigDecimal sobre la
+ * entidad {@link Carrito}, como se hacía antes) contra el camino que hoy atiende
+ * los requests: {@link CarritoActivo} en memoria, con índice por clave de línea y
+ * total incremental en centavos.
+ *
+ * Ejecutar con: mvn test-compile y luego main() desde el IDE,
+ * o java -cp target/test-classes:... CarritoTotalBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CarritoTotalBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int cantidadItems;
+
+    private Carrito carrito;
+    private CarritoActivo activo;
+    private long[] lineaIds;
+    private long[] precios;
+
+    @Setup(Level.Iteration)
+    public void preparar() throws ReflectiveOperationException {
+        carrito = new Carrito();
+        activo = nuevoCarritoActivo();
+        lineaIds = new long[cantidadItems];
+        precios = new long[cantidadItems];
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int i = 0; i < cantidadItems; i++) {
+            long centavos = rnd.nextLong(100, 100_000);
+            int cantidad = rnd.nextInt(1, 5);
+
+            CarritoItem item = new CarritoItem();
+            item.setPrecioUnitario(BigDecimal.valueOf(centavos, 2));
+            item.setCantidad(cantidad);
+            carrito.agregarItem(item);
+
+            precios[i] = centavos;
+            lineaIds[i] = activo.agregarLinea((long) i, null, "Producto " + i, centavos, cantidad).getId();
+        }
+    }
+
+    /* ============ Antes: cambio de cantidad + reducción completa ============ */
+
+    @Benchmark
+    public BigDecimal recalculoCompleto() {
+        CarritoItem item = carrito.getItems().get(indiceAlAzar());
+        item.setCantidad(item.getCantidad() % 9 + 1);
+        BigDecimal total = carrito.getItems().stream()
+                .map(CarritoItem::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        carrito.setTotal(total);
+        return carrito.getTotal();
+    }
+
+    /* ============ Ahora: carrito en memoria, delta sobre el total en centavos ============ */
+
+    @Benchmark
+    public long actualizarCantidad() {
+        activo.actualizarCantidad(lineaIds[indiceAlAzar()], ThreadLocalRandom.current().nextInt(1, 10));
+        return activo.getTotalCentavos();
+    }
+
+    // Agregar algo que ya está en el carrito: búsqueda por índice y suma a la línea existente
+    @Benchmark
+    public long agregarLinea() {
+        int i = indiceAlAzar();
+        activo.agregarLinea((long) i, null, "Producto " + i, precios[i], 1);
+        return activo.getTotalCentavos();
+    }
+
+    private int indiceAlAzar() {
+        return ThreadLocalRandom.current().nextInt(cantidadItems);
+    }
+
+    // El constructor es privado: solo CarritoMemoriaService crea carritos activos al cargarlos de la base
+    private static CarritoActivo nuevoCarritoActivo() throws ReflectiveOperationException {
+        Constructor<CarritoActivo> constructor = CarritoActivo.class.getDeclaredConstructor(Long.class, Long.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(1L, 1L);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CarritoTotalBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.pizzumburgum.enums;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static com.example.pizzumburgum.enums.EstadoPedido.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EstadoPedidoTest {
+
+    @Test
+    void transicionesValidas() {
+        assertThat(PENDIENTE.puedePasarA(PREPARACION)).isTrue();
+        assertThat(PENDIENTE.puedePasarA(CANCELADO)).isTrue();
+        assertThat(PREPARACION.puedePasarA(EN_CAMINO)).isTrue();
+        assertThat(PREPARACION.puedePasarA(CANCELADO)).isTrue();
+        assertThat(EN_CAMINO.puedePasarA(ENTREGADO)).isTrue();
+    }
+
+    @Test
+    void noSeSaltanEstadosNiSeVuelveAtras() {
+        assertThat(PENDIENTE.puedePasarA(EN_CAMINO)).isFalse();
+        assertThat(PENDIENTE.puedePasarA(ENTREGADO)).isFalse();
+        assertThat(PREPARACION.puedePasarA(PENDIENTE)).isFalse();
+        assertThat(EN_CAMINO.puedePasarA(PREPARACION)).isFalse();
+        // Ya salió: no se cancela
+        assertThat(EN_CAMINO.puedePasarA(CANCELADO)).isFalse();
+    }
+
+    @Test
+    void ningunEstadoPasaASiMismo() {
+        for (EstadoPedido estado : values()) {
+            assertThat(estado.puedePasarA(estado)).isFalse();
+        }
+    }
+
+    @Test
+    void entregadoYCanceladoSonFinales() {
+        for (EstadoPedido destino : values()) {
+            assertThat(ENTREGADO.puedePasarA(destino)).isFalse();
+            assertThat(CANCELADO.puedePasarA(destino)).isFalse();
+        }
+        assertThat(ENTREGADO.siguientes()).isEmpty();
+        assertThat(CANCELADO.siguientes()).isEmpty();
+    }
+
+    @Test
+    void siguientesCoincideConPuedePasarA() {
+        for (EstadoPedido origen : values()) {
+            EnumSet<EstadoPedido> esperados = EnumSet.noneOf(EstadoPedido.class);
+            for (EstadoPedido destino : values()) {
+                if (origen.puedePasarA(destino)) esperados.add(destino);
+            }
+            assertThat(origen.siguientes()).isEqualTo(esperados);
+        }
+    }
+
+    @Test
+    void siguientesDevuelveUnaCopia() {
+        PENDIENTE.siguientes().clear();
+        assertThat(PENDIENTE.puedePasarA(PREPARACION)).isTrue();
+    }
+
+    @Test
+    void soloPendienteEsEditable() {
+        assertThat(PENDIENTE.esEditable()).isTrue();
+        for (EstadoPedido estado : EnumSet.complementOf(EnumSet.of(PENDIENTE))) {
+            assertThat(estado.esEditable()).isFalse();
+        }
+    }
+}
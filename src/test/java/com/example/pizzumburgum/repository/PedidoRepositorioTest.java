@@ -0,0 +1,93 @@
+package com.example.pizzumburgum.repository;
+
+import com.example.pizzumburgum.entities.Pedido;
+import com.example.pizzumburgum.entities.Usuario;
+import com.example.pizzumburgum.enums.EstadoPedido;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UPDATE condicional de la máquina de estados: solo cambia si el estado (y la versión,
+ * cuando se manda) siguen siendo los que vio el que llama, y siempre sube la versión.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class PedidoRepositorioTest {
+
+    @Autowired private PedidoRepositorio pedidoRepositorio;
+    @Autowired private UsuarioRepositorio usuarioRepositorio;
+
+    private Long pedidoId;
+
+    @BeforeEach
+    void setUp() {
+        Usuario usuario = new Usuario();
+        usuario.setNombre("Ana");
+        usuario.setApellido("Pérez");
+        usuario.setCedulaIdentidad("1234567-8");
+        usuario.setEmail("ana@pizzum.uy");
+        usuario.setPassword("secreta123");
+        usuario.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        usuario.setTelefono("099123456");
+
+        Pedido pedido = new Pedido();
+        pedido.setUsuario(usuarioRepositorio.save(usuario));
+        pedido.setEstado(EstadoPedido.PENDIENTE);
+        pedido.setPrecioTotal(new BigDecimal("250.00"));
+        pedidoId = pedidoRepositorio.saveAndFlush(pedido).getId();
+    }
+
+    @Test
+    void cambiaYSubeLaVersionSiEstadoYVersionCoinciden() {
+        int filas = pedidoRepositorio.actualizarEstado(pedidoId, EstadoPedido.PENDIENTE, EstadoPedido.PREPARACION, 0L);
+
+        assertThat(filas).isEqualTo(1);
+        Pedido pedido = pedidoRepositorio.findById(pedidoId).orElseThrow();
+        assertThat(pedido.getEstado()).isEqualTo(EstadoPedido.PREPARACION);
+        assertThat(pedido.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void sinVersionSoloExigeElEstado() {
+        assertThat(pedidoRepositorio.actualizarEstado(pedidoId, EstadoPedido.PENDIENTE, EstadoPedido.PREPARACION, null))
+                .isEqualTo(1);
+        assertThat(pedidoRepositorio.actualizarEstado(pedidoId, EstadoPedido.PREPARACION, EstadoPedido.EN_CAMINO, null))
+                .isEqualTo(1);
+
+        Pedido pedido = pedidoRepositorio.findById(pedidoId).orElseThrow();
+        assertThat(pedido.getEstado()).isEqualTo(EstadoPedido.EN_CAMINO);
+        assertThat(pedido.getVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    void estadoViejoNoCambiaNada() {
+        pedidoRepositorio.actualizarEstado(pedidoId, EstadoPedido.PENDIENTE, EstadoPedido.PREPARACION, null);
+
+        // Otro admin lo vio PENDIENTE y quiere cancelarlo
+        int filas = pedidoRepositorio.actualizarEstado(pedidoId, EstadoPedido.PENDIENTE, EstadoPedido.CANCELADO, null);
+
+        assertThat(filas).isZero();
+        Pedido pedido = pedidoRepositorio.findById(pedidoId).orElseThrow();
+        assertThat(pedido.getEstado()).isEqualTo(EstadoPedido.PREPARACION);
+        assertThat(pedido.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void versionViejaNoCambiaNada() {
+        pedidoRepositorio.actualizarEstado(pedidoId, EstadoPedido.PENDIENTE, EstadoPedido.PREPARACION, 0L);
+
+        // Estado correcto pero la versión que vio el cliente ya no es la actual
+        int filas = pedidoRepositorio.actualizarEstado(pedidoId, EstadoPedido.PREPARACION, EstadoPedido.CANCELADO, 0L);
+
+        assertThat(filas).isZero();
+        Pedido pedido = pedidoRepositorio.findById(pedidoId).orElseThrow();
+        assertThat(pedido.getEstado()).isEqualTo(EstadoPedido.PREPARACION);
+        assertThat(pedido.getVersion()).isEqualTo(1L);
+    }
+}
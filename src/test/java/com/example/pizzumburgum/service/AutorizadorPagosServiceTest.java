@@ -0,0 +1,214 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.service.PasarelaPago.ResultadoPago;
+import com.example.pizzumburgum.service.PasarelaPago.SolicitudPago;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Circuit breaker, timeout y bulkhead del autorizador contra una pasarela falsa:
+ * cuántas llamadas llegan realmente a la pasarela y qué resultado ve el checkout.
+ */
+class AutorizadorPagosServiceTest {
+
+    private static final SolicitudPago SOLICITUD = new SolicitudPago(1L, 2L, new BigDecimal("100.00"));
+    private static final int UMBRAL = 3;
+    private static final long APERTURA_MS = 100;
+
+    private final AtomicInteger llamadas = new AtomicInteger();
+    private volatile Function<SolicitudPago, ResultadoPago> comportamiento;
+    private AutorizadorPagosService autorizador;
+
+    @BeforeEach
+    void setUp() {
+        autorizador = nuevoAutorizador(20, 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        autorizador.detener();
+    }
+
+    private AutorizadorPagosService nuevoAutorizador(int maxConcurrentes, long timeoutMs) {
+        AutorizadorPagosService a = new AutorizadorPagosService(solicitud -> {
+            llamadas.incrementAndGet();
+            return comportamiento.apply(solicitud);
+        });
+        ReflectionTestUtils.setField(a, "timeoutMillis", timeoutMs);
+        ReflectionTestUtils.setField(a, "maxConcurrentes", maxConcurrentes);
+        ReflectionTestUtils.setField(a, "esperaBulkheadMillis", 20L);
+        ReflectionTestUtils.setField(a, "umbralFallas", UMBRAL);
+        ReflectionTestUtils.setField(a, "aperturaMillis", APERTURA_MS);
+        a.inicializar();
+        return a;
+    }
+
+    @Test
+    void fallasSeguidasAbrenElCircuitoYNoSeLlamaMas() {
+        comportamiento = s -> { throw new IllegalStateException("pasarela caída"); };
+
+        for (int i = 0; i < UMBRAL; i++) {
+            assertThat(autorizador.autorizar(SOLICITUD).incierto()).isTrue();
+        }
+        ResultadoPago conCircuitoAbierto = autorizador.autorizar(SOLICITUD);
+
+        assertThat(llamadas.get()).isEqualTo(UMBRAL);
+        // Abierto: rechazo definitivo sin tocar la pasarela (no pudo cobrar)
+        assertThat(conCircuitoAbierto.aprobado()).isFalse();
+        assertThat(conCircuitoAbierto.incierto()).isFalse();
+    }
+
+    @Test
+    void rechazosDeNegocioNoAbrenElCircuito() {
+        comportamiento = s -> ResultadoPago.rechazado("Fondos insuficientes");
+
+        for (int i = 0; i < UMBRAL * 2; i++) {
+            assertThat(autorizador.autorizar(SOLICITUD).motivo()).isEqualTo("Fondos insuficientes");
+        }
+        assertThat(llamadas.get()).isEqualTo(UMBRAL * 2);
+    }
+
+    @Test
+    void unExitoReiniciaLaCuentaDeFallas() {
+        comportamiento = s -> { throw new IllegalStateException("falla"); };
+        for (int i = 0; i < UMBRAL - 1; i++) autorizador.autorizar(SOLICITUD);
+        comportamiento = s -> ResultadoPago.aprobado("OK");
+        autorizador.autorizar(SOLICITUD);
+        comportamiento = s -> { throw new IllegalStateException("falla"); };
+        for (int i = 0; i < UMBRAL - 1; i++) autorizador.autorizar(SOLICITUD);
+
+        comportamiento = s -> ResultadoPago.aprobado("OK");
+        assertThat(autorizador.autorizar(SOLICITUD).aprobado()).isTrue();
+        assertThat(llamadas.get()).isEqualTo(2 * UMBRAL);
+    }
+
+    @Test
+    void pasadaLaAperturaUnaPruebaExitosaCierraElCircuito() throws Exception {
+        abrirCircuito();
+        Thread.sleep(APERTURA_MS + 50);
+
+        comportamiento = s -> ResultadoPago.aprobado("OK");
+        assertThat(autorizador.autorizar(SOLICITUD).aprobado()).isTrue();
+        assertThat(autorizador.autorizar(SOLICITUD).aprobado()).isTrue();
+        assertThat(llamadas.get()).isEqualTo(UMBRAL + 2);
+    }
+
+    @Test
+    void unaPruebaFallidaVuelveAAbrirloEnseguida() throws Exception {
+        abrirCircuito();
+        Thread.sleep(APERTURA_MS + 50);
+
+        // Semiabierto: una sola falla alcanza para reabrir, sin esperar al umbral
+        assertThat(autorizador.autorizar(SOLICITUD).incierto()).isTrue();
+        comportamiento = s -> ResultadoPago.aprobado("OK");
+        assertThat(autorizador.autorizar(SOLICITUD).aprobado()).isFalse();
+        assertThat(llamadas.get()).isEqualTo(UMBRAL + 1);
+    }
+
+    @Test
+    void consultarUsaElMismoCircuitoYNuncaRechaza() {
+        abrirCircuito();
+
+        // Con el circuito abierto la conciliación no llama y deja el pago para más tarde
+        ResultadoPago resultado = autorizador.consultar(SOLICITUD);
+        assertThat(resultado.incierto()).isTrue();
+        assertThat(llamadas.get()).isEqualTo(UMBRAL);
+    }
+
+    @Test
+    void timeoutEsInciertoYCuentaComoFalla() {
+        autorizador.detener();
+        autorizador = nuevoAutorizador(20, 50);
+        CountDownLatch soltar = new CountDownLatch(1);
+        comportamiento = s -> {
+            esperar(soltar);
+            return ResultadoPago.aprobado("tarde");
+        };
+
+        try {
+            for (int i = 0; i < UMBRAL; i++) {
+                // Pudo haber cobrado: incierto, nunca rechazado
+                assertThat(autorizador.autorizar(SOLICITUD).incierto()).isTrue();
+            }
+            assertThat(autorizador.autorizar(SOLICITUD).incierto()).isFalse();
+            assertThat(llamadas.get()).isEqualTo(UMBRAL);
+        } finally {
+            soltar.countDown();
+        }
+    }
+
+    @Test
+    void bulkheadLlenoRechazaSinLlamarALaPasarela() throws Exception {
+        autorizador.detener();
+        autorizador = nuevoAutorizador(1, 50);
+        CountDownLatch soltar = new CountDownLatch(1);
+        comportamiento = s -> {
+            esperar(soltar);
+            return ResultadoPago.aprobado("OK");
+        };
+
+        try {
+            // La primera queda colgada: el cliente recibe el timeout pero el permiso sigue tomado
+            assertThat(autorizador.autorizar(SOLICITUD).incierto()).isTrue();
+            ResultadoPago saturado = autorizador.autorizar(SOLICITUD);
+
+            assertThat(saturado.aprobado()).isFalse();
+            assertThat(saturado.incierto()).isFalse();
+            assertThat(llamadas.get()).isEqualTo(1);
+        } finally {
+            soltar.countDown();
+        }
+
+        // Cuando la llamada colgada termina, el permiso vuelve
+        comportamiento = s -> ResultadoPago.aprobado("OK");
+        ResultadoPago despues = CompletableFuture.supplyAsync(() -> {
+            for (int i = 0; i < 50; i++) {
+                ResultadoPago r = autorizador.autorizar(SOLICITUD);
+                if (r.aprobado()) return r;
+                dormir(20);
+            }
+            return ResultadoPago.rechazado("sin permiso");
+        }).get(5, TimeUnit.SECONDS);
+        assertThat(despues.aprobado()).isTrue();
+    }
+
+    private void abrirCircuito() {
+        comportamiento = s -> { throw new IllegalStateException("pasarela caída"); };
+        for (int i = 0; i < UMBRAL; i++) {
+            autorizador.autorizar(SOLICITUD);
+        }
+    }
+
+    // Pasarela colgada de verdad: ignora la interrupción del cancel(true), como un socket bloqueado
+    private static void esperar(CountDownLatch latch) {
+        boolean interrumpido = false;
+        while (true) {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) Thread.currentThread().interrupt();
+    }
+
+    private static void dormir(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.dto.request.CarritoLoteDTO;
+import com.example.pizzumburgum.dto.response.CarritoDTO;
+import com.example.pizzumburgum.entities.Carrito;
+import com.example.pizzumburgum.entities.CarritoItem;
+import com.example.pizzumburgum.entities.Composicion;
+import com.example.pizzumburgum.entities.Creacion;
+import com.example.pizzumburgum.entities.Producto;
+import com.example.pizzumburgum.entities.Usuario;
+import com.example.pizzumburgum.enums.CategoriaCreacion;
+import com.example.pizzumburgum.enums.CategoriaProducto;
+import com.example.pizzumburgum.enums.TipoOperacionCarrito;
+import com.example.pizzumburgum.repository.CarritoRepositorio;
+import com.example.pizzumburgum.repository.ComposicionRepositorio;
+import com.example.pizzumburgum.repository.CreacionRepositorio;
+import com.example.pizzumburgum.repository.ProductoRepositorio;
+import com.example.pizzumburgum.repository.UsuarioRepositorio;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Cantidad real de sentencias SQL del camino "agregar al carrito", medida con las
+ * estadísticas de Hibernate contra H2: que no vuelvan las búsquedas duplicadas ni la
+ * carga aparte del usuario o de la composición (lazy en Creacion: cada consulta que
+ * la necesita tiene que traerla con JOIN FETCH).
+ * Sin transacción de test: la carga del carrito corre en una transacción propia
+ * (REQUIRES_NEW) y tiene que ver los datos ya confirmados.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({CarritoService.class, CarritoMemoriaService.class, CatalogoService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CarritoServiceTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    @Autowired private CarritoService carritoService;
+    @Autowired private CatalogoService catalogoService;
+    @Autowired private UsuarioRepositorio usuarioRepositorio;
+    @Autowired private ProductoRepositorio productoRepositorio;
+    @Autowired private ComposicionRepositorio composicionRepositorio;
+    @Autowired private CreacionRepositorio creacionRepositorio;
+    @Autowired private CarritoRepositorio carritoRepositorio;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private Statistics estadisticas;
+    private TransactionTemplate transaccion;
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        transaccion = new TransactionTemplate(transactionManager);
+        usuario = usuarioRepositorio.save(usuario());
+    }
+
+    @Test
+    void agregarProductoYCreacionConCarritoExistente() {
+        carritoExistente();
+        Producto coca = producto("Coca-Cola", "90.00");
+        Creacion muzza = creacion("Muzza", producto("Masa", "150.00"), producto("Muzzarella", "120.50"));
+        catalogoService.reconstruir();
+        estadisticas.clear();
+
+        carritoService.agregarProductoSuelto(usuario.getId(), coca.getId(), 2);
+        carritoService.agregarProductoSuelto(usuario.getId(), coca.getId(), 1);
+        CarritoDTO dto = carritoService.agregarCreacion(usuario.getId(), muzza.getId(), 1);
+
+        // Una carga del carrito (con items y composiciones) y una consulta por la creación;
+        // los productos salen del catálogo en memoria y el usuario nunca se lee
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(dto.getItems()).hasSize(2);
+        assertThat(dto.getTotal()).isEqualByComparingTo("540.50");
+    }
+
+    @Test
+    void carritoNuevoUsaReferenciaDelUsuario() {
+        Producto coca = producto("Coca-Cola", "90.00");
+        catalogoService.reconstruir();
+        estadisticas.clear();
+
+        carritoService.agregarProductoSuelto(usuario.getId(), coca.getId(), 1);
+
+        // Buscar el carrito e insertarlo: la FK al usuario sale de una referencia, sin SELECT
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(estadisticas.getEntityStatistics(Usuario.class.getName()).getLoadCount()).isZero();
+    }
+
+    @Test
+    void loteConVariasCreacionesLasTraeEnUnaConsulta() {
+        carritoExistente();
+        Creacion muzza = creacion("Muzza", producto("Masa", "150.00"));
+        Creacion doble = creacion("Doble", producto("Pan", "80.00"));
+        estadisticas.clear();
+
+        CarritoDTO dto = carritoService.aplicarLote(usuario.getId(), List.of(
+                agregarCreacion(muzza.getId(), 1), agregarCreacion(doble.getId(), 2), agregarCreacion(muzza.getId(), 1)));
+
+        // Las dos creaciones en una sola consulta, más la carga del carrito
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(dto.getTotal()).isEqualByComparingTo("460.00");
+    }
+
+    @Test
+    void creacionSinProductosVigentesNoSeAgrega() {
+        Creacion vieja = creacion("Vieja");
+
+        assertThatThrownBy(() -> carritoService.agregarCreacion(usuario.getId(), vieja.getId(), 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("no tiene productos disponibles");
+        assertThat(carritoRepositorio.findByUsuarioIdWithItems(usuario.getId())).isEmpty();
+    }
+
+    @Test
+    void cargarCreacionesTraeLaComposicionEnLaMismaConsulta() {
+        Creacion muzza = creacion("Muzza", producto("Masa", "150.00"));
+        Creacion doble = creacion("Doble", producto("Pan", "80.00"));
+        estadisticas.clear();
+
+        // Dentro de una transacción: una composición lazy sin JOIN FETCH se cargaría con su propio SELECT
+        transaccion.executeWithoutResult(status -> {
+            Creacion una = creacionRepositorio.findByIdWithComposicion(muzza.getId()).orElseThrow();
+            assertThat(una.getPrecioTotal()).isEqualByComparingTo("150.00");
+            for (Creacion c : creacionRepositorio.findAllWithComposicionByIds(List.of(muzza.getId(), doble.getId()))) {
+                assertThat(c.getPrecioTotal()).isNotNull();
+            }
+        });
+
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(estadisticas.getEntityStatistics(Composicion.class.getName()).getFetchCount()).isZero();
+    }
+
+    @Test
+    void cargarCarritoTraeLaComposicionDeSusCreaciones() {
+        Creacion muzza = creacion("Muzza", producto("Masa", "150.00"));
+        Carrito carrito = new Carrito();
+        carrito.setUsuario(usuario);
+        CarritoItem item = new CarritoItem();
+        item.setCreacion(muzza);
+        item.setPrecioUnitario(new BigDecimal("150.00"));
+        item.setCantidad(2);
+        carrito.agregarItem(item);
+        carritoRepositorio.save(carrito);
+        estadisticas.clear();
+
+        transaccion.executeWithoutResult(status -> {
+            Carrito cargado = carritoRepositorio.findByUsuarioIdWithItems(usuario.getId()).orElseThrow();
+            assertThat(cargado.getItems().get(0).getCreacion().getPrecioTotal()).isEqualByComparingTo("150.00");
+        });
+
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(estadisticas.getEntityStatistics(Composicion.class.getName()).getFetchCount()).isZero();
+    }
+
+    /* ============ Datos ============ */
+
+    private static Usuario usuario() {
+        int n = SECUENCIA.incrementAndGet();
+        Usuario u = new Usuario();
+        u.setNombre("Ana");
+        u.setApellido("Pérez");
+        u.setCedulaIdentidad(String.format("%07d-1", n));
+        u.setEmail("cliente" + n + "@pizzum.uy");
+        u.setPassword("secreta123");
+        u.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        u.setTelefono("099123456");
+        return u;
+    }
+
+    private void carritoExistente() {
+        Carrito carrito = new Carrito();
+        carrito.setUsuario(usuario);
+        carritoRepositorio.save(carrito);
+    }
+
+    private Producto producto(String nombre, String precio) {
+        Producto p = new Producto();
+        p.setNombre(nombre);
+        p.setPrecio(new BigDecimal(precio));
+        p.setCategoria(CategoriaProducto.TOPPING_PIZZA);
+        return productoRepositorio.save(p);
+    }
+
+    private Creacion creacion(String nombre, Producto... productos) {
+        Composicion composicion = new Composicion();
+        composicion.setHash(nombre + SECUENCIA.incrementAndGet());
+        composicion.setCategoriaCreacion(CategoriaCreacion.PIZZA_BASE);
+        composicion.setProductos(new ArrayList<>(List.of(productos)));
+        composicion.recalcularPrecioTotal();
+
+        Creacion c = new Creacion();
+        c.setNombre(nombre);
+        c.setCategoriaCreacion(CategoriaCreacion.PIZZA_BASE);
+        c.setUsuario(usuario);
+        c.setComposicion(composicionRepositorio.save(composicion));
+        return creacionRepositorio.save(c);
+    }
+
+    private static CarritoLoteDTO.Operacion agregarCreacion(Long creacionId, int cantidad) {
+        CarritoLoteDTO.Operacion op = new CarritoLoteDTO.Operacion();
+        op.setTipo(TipoOperacionCarrito.AGREGAR_CREACION);
+        op.setCreacionId(creacionId);
+        op.setCantidad(cantidad);
+        return op;
+    }
+}
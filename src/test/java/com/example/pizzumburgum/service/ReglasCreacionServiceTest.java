@@ -0,0 +1,186 @@
+package com.example.pizzumburgum.service;
+
+import com.example.pizzumburgum.entities.Producto;
+import com.example.pizzumburgum.enums.CategoriaProducto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.pizzumburgum.enums.CategoriaCreacion.HAMBURGUESA_BASE;
+import static com.example.pizzumburgum.enums.CategoriaCreacion.PIZZA_BASE;
+import static com.example.pizzumburgum.enums.CategoriaProducto.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Compilación de las reglas de armado (formato CATEGORIA:min..max) y validación
+ * de creaciones contra las reglas por defecto.
+ */
+class ReglasCreacionServiceTest {
+
+    private MockEnvironment environment;
+    private ReglasCreacionService reglas;
+
+    @BeforeEach
+    void setUp() {
+        environment = new MockEnvironment();
+        reglas = nuevoServicio();
+    }
+
+    private ReglasCreacionService nuevoServicio() {
+        ReglasCreacionService servicio = new ReglasCreacionService(environment);
+        servicio.inicializar();
+        return servicio;
+    }
+
+    /* ============ COMPILACIÓN ============ */
+
+    @Test
+    void sinConfiguracionUsaLasReglasPorDefecto() {
+        assertThat(reglas.listar()).containsEntry(PIZZA_BASE,
+                "TIPO_MASA:1,TAMANIO_PIZZA:1,SALSA_PIZZA:0..*,TOPPING_PIZZA:0..5,BEBIDA:0..1,ACOMPANIAMIENTO:0..*");
+        assertThat(reglas.listar()).containsKey(HAMBURGUESA_BASE);
+    }
+
+    @Test
+    void laConfiguracionReemplazaAlDefectoYSeNormaliza() {
+        environment.setProperty("creaciones.reglas.PIZZA_BASE", " tipo_masa : 1 , TOPPING_PIZZA:0..8,, BEBIDA:0..* ");
+        reglas = nuevoServicio();
+
+        assertThat(reglas.listar()).containsEntry(PIZZA_BASE, "TIPO_MASA:1,TOPPING_PIZZA:0..8,BEBIDA:0..*");
+    }
+
+    @Test
+    void rechazaDefinicionesMalFormadas() {
+        assertThatThrownBy(() -> reglas.actualizar(PIZZA_BASE, " "))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("vacía");
+        assertThatThrownBy(() -> reglas.actualizar(PIZZA_BASE, "TIPO_MASA"))
+                .hasMessageContaining("se espera CATEGORIA:min..max");
+        assertThatThrownBy(() -> reglas.actualizar(PIZZA_BASE, "MASA_MADRE:1"))
+                .hasMessageContaining("Categoría de producto desconocida");
+        assertThatThrownBy(() -> reglas.actualizar(PIZZA_BASE, "TIPO_MASA:1,TIPO_MASA:0..2"))
+                .hasMessageContaining("Categoría repetida");
+        assertThatThrownBy(() -> reglas.actualizar(PIZZA_BASE, "TIPO_MASA:uno"))
+                .hasMessageContaining("Límite inválido");
+        assertThatThrownBy(() -> reglas.actualizar(PIZZA_BASE, "TIPO_MASA:-1..2"))
+                .hasMessageContaining("Límite inválido");
+        assertThatThrownBy(() -> reglas.actualizar(PIZZA_BASE, "TIPO_MASA:*"))
+                .hasMessageContaining("Límite inválido");
+        assertThatThrownBy(() -> reglas.actualizar(PIZZA_BASE, "TIPO_MASA:3..1"))
+                .hasMessageContaining("Rango inválido");
+        assertThatThrownBy(() -> reglas.actualizar(PIZZA_BASE, "TIPO_MASA:0"))
+                .hasMessageContaining("Rango inválido");
+        assertThatThrownBy(() -> reglas.actualizar(PIZZA_BASE, ",,"))
+                .hasMessageContaining("no permite ninguna categoría");
+    }
+
+    @Test
+    void unaActualizacionInvalidaNoCambiaLaReglaVigente() {
+        String antes = reglas.listar().get(PIZZA_BASE);
+
+        assertThatThrownBy(() -> reglas.actualizar(PIZZA_BASE, "TIPO_MASA:3..1"));
+
+        assertThat(reglas.listar().get(PIZZA_BASE)).isEqualTo(antes);
+    }
+
+    @Test
+    void actualizarRigeParaLaSiguienteValidacion() {
+        List<Producto> seisToppings = productos(TIPO_MASA, TAMANIO_PIZZA,
+                TOPPING_PIZZA, TOPPING_PIZZA, TOPPING_PIZZA, TOPPING_PIZZA, TOPPING_PIZZA, TOPPING_PIZZA);
+        assertThatThrownBy(() -> reglas.validar(PIZZA_BASE, seisToppings));
+
+        String vigente = reglas.actualizar(PIZZA_BASE, "TIPO_MASA:1,TAMANIO_PIZZA:1,TOPPING_PIZZA:0..8");
+
+        assertThat(vigente).isEqualTo("TIPO_MASA:1,TAMANIO_PIZZA:1,TOPPING_PIZZA:0..8");
+        assertThatCode(() -> reglas.validar(PIZZA_BASE, seisToppings)).doesNotThrowAnyException();
+    }
+
+    /* ============ VALIDACIÓN ============ */
+
+    @Test
+    void aceptaCreacionesDentroDeLosLimites() {
+        assertThatCode(() -> reglas.validar(PIZZA_BASE, productos(TIPO_MASA, TAMANIO_PIZZA,
+                SALSA_PIZZA, SALSA_PIZZA, SALSA_PIZZA, TOPPING_PIZZA, TOPPING_PIZZA, BEBIDA)))
+                .doesNotThrowAnyException();
+        assertThatCode(() -> reglas.validar(HAMBURGUESA_BASE, productos(TIPO_PAN,
+                TIPO_CARNE, TIPO_CARNE, TIPO_CARNE, SALSA_HAMBURGUESA, ACOMPANIAMIENTO, ACOMPANIAMIENTO)))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void exigeExactamenteUnaMasaYUnTamanio() {
+        assertThatThrownBy(() -> reglas.validar(PIZZA_BASE, productos(TAMANIO_PIZZA)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Debe haber exactamente 1 tipo de masa");
+        assertThatThrownBy(() -> reglas.validar(PIZZA_BASE, productos(TIPO_MASA, TIPO_MASA, TAMANIO_PIZZA)))
+                .hasMessage("Debe haber exactamente 1 tipo de masa");
+        assertThatThrownBy(() -> reglas.validar(PIZZA_BASE, productos(TIPO_MASA)))
+                .hasMessage("Debe haber exactamente 1 tamaño de pizza");
+        assertThatThrownBy(() -> reglas.validar(HAMBURGUESA_BASE, productos(TIPO_CARNE)))
+                .hasMessage("Debe haber exactamente 1 tipo de pan");
+    }
+
+    @Test
+    void respetaLosMaximos() {
+        assertThatThrownBy(() -> reglas.validar(PIZZA_BASE, productos(TIPO_MASA, TAMANIO_PIZZA,
+                TOPPING_PIZZA, TOPPING_PIZZA, TOPPING_PIZZA, TOPPING_PIZZA, TOPPING_PIZZA, TOPPING_PIZZA)))
+                .hasMessage("Máximo 5 toppings para pizza");
+        assertThatThrownBy(() -> reglas.validar(HAMBURGUESA_BASE, productos(TIPO_PAN,
+                TIPO_CARNE, TIPO_CARNE, TIPO_CARNE, TIPO_CARNE)))
+                .hasMessage("Máximo 3 tipos de carne");
+        assertThatThrownBy(() -> reglas.validar(HAMBURGUESA_BASE, productos(TIPO_PAN,
+                SALSA_HAMBURGUESA, SALSA_HAMBURGUESA, SALSA_HAMBURGUESA)))
+                .hasMessage("Máximo 2 salsas para hamburguesa");
+        assertThatThrownBy(() -> reglas.validar(PIZZA_BASE, productos(TIPO_MASA, TAMANIO_PIZZA, BEBIDA, BEBIDA)))
+                .hasMessage("Máximo 1 bebida por creación");
+    }
+
+    @Test
+    void minimoDistintoDelMaximoPideAlMenos() {
+        reglas.actualizar(HAMBURGUESA_BASE, "TIPO_PAN:1,TIPO_CARNE:1..3");
+
+        assertThatThrownBy(() -> reglas.validar(HAMBURGUESA_BASE, productos(TIPO_PAN)))
+                .hasMessage("Debe haber al menos 1 tipo de carne");
+    }
+
+    @Test
+    void rechazaCategoriasQueElTipoNoAdmite() {
+        List<Producto> conPan = productos(TIPO_MASA, TAMANIO_PIZZA);
+        conPan.add(producto("Pan brioche", TIPO_PAN));
+
+        assertThatThrownBy(() -> reglas.validar(PIZZA_BASE, conPan))
+                .hasMessage("El producto 'Pan brioche' no se puede agregar a una pizza");
+    }
+
+    @Test
+    void unaCategoriaAusenteDeLaConfiguracionNoSeAdmite() {
+        environment.setProperty("creaciones.reglas.HAMBURGUESA_BASE", "TIPO_PAN:1");
+        reglas = nuevoServicio();
+
+        assertThatCode(() -> reglas.validar(HAMBURGUESA_BASE, productos(TIPO_PAN))).doesNotThrowAnyException();
+        assertThatThrownBy(() -> reglas.validar(HAMBURGUESA_BASE, productos(TIPO_PAN, TIPO_CARNE)))
+                .hasMessage("El producto 'TIPO_CARNE' no se puede agregar a una hamburguesa");
+    }
+
+    /* ============ AUXILIARES ============ */
+
+    // Un producto por categoría, con la categoría como nombre
+    private static List<Producto> productos(CategoriaProducto... categorias) {
+        List<Producto> productos = new ArrayList<>();
+        for (CategoriaProducto categoria : categorias) {
+            productos.add(producto(categoria.name(), categoria));
+        }
+        return productos;
+    }
+
+    private static Producto producto(String nombre, CategoriaProducto categoria) {
+        Producto p = new Producto();
+        p.setNombre(nombre);
+        p.setCategoria(categoria);
+        return p;
+    }
+}